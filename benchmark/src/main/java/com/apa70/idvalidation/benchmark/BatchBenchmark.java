@@ -0,0 +1,55 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.BatchValidator;
+import com.apa70.idvalidation.IDValidator;
+import com.apa70.idvalidation.entity.ValidationResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 批量验证在单线程与多线程下的比较
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3,time=2)
+@Measurement(iterations=5,time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchBenchmark {
+
+    @Param({"100000"})
+    public int size;
+
+    @Param({"1","2","4","8"})
+    public int parallelism;
+
+    private String[] ids;
+    private BatchValidator batchValidator;
+    private ForkJoinPool pool;
+
+    @Setup
+    public void setup(){
+        ids=SyntheticIDs.generate(SyntheticIDs.Kind.VALID,size,7);
+        IDValidator validator=new IDValidator();
+        validator.validate(ids[0]);
+        if(parallelism==1){
+            batchValidator=new BatchValidator(validator);
+        }else{
+            pool=new ForkJoinPool(parallelism);
+            batchValidator=new BatchValidator(validator,pool,BatchValidator.DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    @TearDown
+    public void tearDown(){
+        if(pool!=null)
+            pool.shutdown();
+    }
+
+    @Benchmark
+    public ValidationResult[] validate(){
+        return batchValidator.validate(ids);
+    }
+}
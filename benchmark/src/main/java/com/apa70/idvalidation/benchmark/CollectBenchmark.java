@@ -0,0 +1,69 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.Collect;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collect.add解析民政部网页格式的大表格
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations=3,time=2)
+@Measurement(iterations=5,time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollectBenchmark {
+
+    /** 表格的行数，民政部的网页大约3200行 */
+    @Param({"3200"})
+    public int rows;
+
+    private String html;
+    private String path;
+
+    @Setup
+    public void setup() throws IOException {
+        html=html(rows);
+        path=Files.createTempDirectory("idvalidation-collect").toFile().getPath();
+    }
+
+    @Setup(Level.Invocation)
+    public void clean(){
+        //每次都从空目录开始
+        File json=new File(path,"administrative-code-data/code.json");
+        if(json.exists()&&!json.delete())
+            throw new IllegalStateException("无法删除"+json);
+    }
+
+    @Benchmark
+    public String add() throws IOException {
+        new Collect().add(html,202000,path);
+        return path;
+    }
+
+    /**
+     * 生成与民政部网页相同结构的表格：前三行为标题，之后每行为 空 | 代码 | 名称
+     */
+    static String html(int rows){
+        StringBuilder html=new StringBuilder(rows*160);
+        html.append("<html><head><meta charset=\"utf-8\"><title>行政区划代码</title></head><body><table>");
+        html.append("<tr><td colspan=\"3\">中华人民共和国县以上行政区划代码</td></tr>");
+        html.append("<tr><td></td><td></td><td></td></tr>");
+        html.append("<tr><td></td><td>行政区划代码</td><td>单位名称</td></tr>");
+        for(int i=0;i<rows;i++){
+            int code=110000+i*37;
+            html.append("<tr height=\"19\"><td class=\"xl7028029\"></td><td class=\"xl7228029\">")
+                    .append(code)
+                    .append("</td><td class=\"xl7228029\"><span style=\"mso-spacerun:yes\">&nbsp;</span>区县")
+                    .append(i)
+                    .append("</td></tr>");
+        }
+        html.append("</table></body></html>");
+        return html.toString();
+    }
+}
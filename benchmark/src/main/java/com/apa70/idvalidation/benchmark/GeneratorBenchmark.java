@@ -0,0 +1,45 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.IDGenerator;
+import com.apa70.idvalidation.RegionIndex;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成号码的速度：生成到char[]不创建对象，与每个号码创建String比较
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations=3,time=2)
+@Measurement(iterations=5,time=2)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratorBenchmark {
+
+    @Param({"SUCCESS","FORMAT","REGION"})
+    public ErrorCode errorCode;
+
+    private IDGenerator generator;
+    private SplittableRandom random;
+    private final char[] id=new char[IDGenerator.MAX_LENGTH];
+
+    @Setup
+    public void setup() throws IOException {
+        generator=new IDGenerator(RegionIndex.get(null));
+        random=new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public int chars(){
+        return generator.next(errorCode,random,id);
+    }
+
+    @Benchmark
+    public String strings(){
+        return generator.next(errorCode,random);
+    }
+}
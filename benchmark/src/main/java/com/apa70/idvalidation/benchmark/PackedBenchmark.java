@@ -0,0 +1,53 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.IDValidator;
+import com.apa70.idvalidation.PackedIDChecker;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 定长存储的号码：PackedIDChecker一次效验整批，与逐个创建String后quickCheck比较
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3,time=2)
+@Measurement(iterations=5,time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PackedBenchmark {
+
+    @Param({"4096"})
+    public int size;
+
+    @Param({"VALID","VERIFY","FORMAT"})
+    public SyntheticIDs.Kind kind;
+
+    private byte[] records;
+
+    @Setup
+    public void setup(){
+        String[] ids=SyntheticIDs.generate(kind,size,42);
+        records=new byte[size*PackedIDChecker.RECORD_LENGTH];
+        for(int i=0;i<size;i++)
+            System.arraycopy(ids[i].getBytes(StandardCharsets.US_ASCII),0,records,i*PackedIDChecker.RECORD_LENGTH,PackedIDChecker.RECORD_LENGTH);
+    }
+
+    @Benchmark
+    public BitSet packed(){
+        return PackedIDChecker.check(records);
+    }
+
+    @Benchmark
+    public BitSet strings(){
+        BitSet passed=new BitSet(size);
+        for(int i=0;i<size;i++){
+            if(IDValidator.quickCheck(PackedIDChecker.id(records,i))==ErrorCode.SUCCESS)
+                passed.set(i);
+        }
+        return passed;
+    }
+}
@@ -0,0 +1,87 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.Collect;
+import com.apa70.idvalidation.RegionIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地区代码的加载
+ * <p>
+ * cold为新的JVM中第一次加载自带的数据，每次都是新的进程；warm为已经加载后再获取；
+ * reloadJson与reloadSnapshot为重新加载扩展路径，分别从code.json与code.bin快照加载。
+ */
+@State(Scope.Benchmark)
+public class RegionLoadBenchmark {
+
+    private File jsonPath;
+    private File snapshotPath;
+
+    @Setup
+    public void setup() throws IOException {
+        jsonPath=createPath("idvalidation-json");
+        snapshotPath=createPath("idvalidation-snapshot");
+        new Collect().snapshot(snapshotPath.getPath());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations=0)
+    @Measurement(iterations=1)
+    @Fork(10)
+    public RegionIndex cold() throws IOException {
+        return RegionIndex.getResources();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations=3,time=1)
+    @Measurement(iterations=5,time=1)
+    @Fork(1)
+    public RegionIndex warm() throws IOException {
+        return RegionIndex.getResources();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations=3,time=2)
+    @Measurement(iterations=5,time=2)
+    @Fork(1)
+    public RegionIndex reloadJson() throws IOException {
+        return RegionIndex.reload(jsonPath.getPath());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations=3,time=2)
+    @Measurement(iterations=5,time=2)
+    @Fork(1)
+    public RegionIndex reloadSnapshot() throws IOException {
+        return RegionIndex.reload(snapshotPath.getPath());
+    }
+
+    /**
+     * 创建一个扩展路径，内容为自带的code.json
+     */
+    private static File createPath(String prefix) throws IOException {
+        File path=Files.createTempDirectory(prefix).toFile();
+        File data=new File(path,"administrative-code-data");
+        if(!data.mkdir())
+            throw new IOException("创建文件夹"+data+"失败！");
+        try(InputStream inputStream=RegionLoadBenchmark.class.getResourceAsStream("/administrative-code-data/code.json")){
+            Files.copy(inputStream,new File(data,"code.json").toPath(),StandardCopyOption.REPLACE_EXISTING);
+        }
+        path.deleteOnExit();
+        return path;
+    }
+}
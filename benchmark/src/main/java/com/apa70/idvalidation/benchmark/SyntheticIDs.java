@@ -0,0 +1,107 @@
+package com.apa70.idvalidation.benchmark;
+
+import java.util.SplittableRandom;
+
+/**
+ * 确定的(相同的种子生成相同的号码)合成身份证号码，不需要联网或者真实数据
+ */
+public final class SyntheticIDs {
+
+    /** 号码的类型，对应验证的每个阶段 */
+    public enum Kind {
+        /** 验证成功 */
+        VALID,
+        /** 长度不正确 */
+        LENGTH,
+        /** 前17位有非数字 */
+        FORMAT,
+        /** 第18位不正确 */
+        VERIFY,
+        /** 前六位没有对应的省市区 */
+        REGION
+    }
+
+    /** 1985到2005年出生的都能验证成功的区县代码 */
+    private static final int[] COUNTY_CODES={
+            110105,120108,130304,130321,130406,130604,130621,130705,130903,152201,210803,211004,211103,220524,222403,230307,
+            320802,320922,330702,340123,340223,340322,340604,340711,350102,350423,360104,360521,370802,410102,410224,410422,
+            420106,430121,430611,510411,510502,510922,511113,513430,520113,522425,522627,522728,530112,532523,532927,540102,
+            542129,542324,542325,542336,542422,542521,542526,610427,622921,632221,632324,640205,652922,652925,652929,654324};
+    /** 身份证前17位乘的系数 */
+    private static final int[] WEIGHT={7,9,10,5,8,4,2,1,6,3,7,9,10,5,8,4,2};
+    /** 余数对应的第18位 */
+    private static final char[] REMAINDER={'1','0','X','9','8','7','6','5','4','3','2'};
+    /** 每月的天数，不生成2月29日 */
+    private static final int[] DAYS_OF_MONTH={31,28,31,30,31,30,31,31,30,31,30,31};
+
+    private SyntheticIDs(){
+    }
+
+    /**
+     * 生成号码
+     * @param kind 类型
+     * @param count 数量
+     * @param seed 种子
+     * @return String[]
+     */
+    public static String[] generate(Kind kind,int count,long seed){
+        SplittableRandom random=new SplittableRandom(seed);
+        String[] ids=new String[count];
+        for(int i=0;i<count;i++)
+            ids[i]=generate(kind,random);
+        return ids;
+    }
+
+    /**
+     * 生成一个号码
+     * @param kind 类型
+     * @param random 随机数
+     * @return String
+     */
+    public static String generate(Kind kind,SplittableRandom random){
+        char[] id=new char[18];
+        int code=kind==Kind.REGION?990100+random.nextInt(100):COUNTY_CODES[random.nextInt(COUNTY_CODES.length)];
+        int month=1+random.nextInt(12);
+        int birth=(1985+random.nextInt(21))*10000+month*100+1+random.nextInt(DAYS_OF_MONTH[month-1]);
+        int sequence=random.nextInt(1000);
+        put(id,0,code,6);
+        put(id,6,birth,8);
+        put(id,14,sequence,3);
+        id[17]=checkDigit(id);
+
+        switch (kind){
+            case LENGTH:
+                return new String(id,0,random.nextInt(18));
+            case FORMAT:
+                id[random.nextInt(17)]='A';
+                break;
+            case VERIFY:
+                id[17]=REMAINDER[(indexOf(id[17])+1+random.nextInt(10))%11];
+                break;
+            default:
+                break;
+        }
+        return new String(id);
+    }
+
+    private static void put(char[] id,int offset,int value,int length){
+        for(int i=offset+length-1;i>=offset;i--){
+            id[i]=(char)('0'+value%10);
+            value/=10;
+        }
+    }
+
+    private static char checkDigit(char[] id){
+        int sum=0;
+        for(int i=0;i<17;i++)
+            sum+=(id[i]-'0')*WEIGHT[i];
+        return REMAINDER[sum%11];
+    }
+
+    private static int indexOf(char checkDigit){
+        for(int i=0;i<REMAINDER.length;i++)
+            if(REMAINDER[i]==checkDigit)
+                return i;
+        return -1;
+    }
+}
@@ -0,0 +1,83 @@
+package com.apa70.idvalidation.benchmark;
+
+import com.apa70.idvalidation.IDValidation;
+import com.apa70.idvalidation.IDValidator;
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个号码的验证，每种号码类型对应验证的一个阶段
+ * <p>
+ * 加上 -prof gc 可以看到每次验证的内存分配
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations=3,time=2)
+@Measurement(iterations=5,time=2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ValidateBenchmark {
+
+    /** 号码的数量，2的幂 */
+    private static final int SIZE=4096;
+
+    @Param({"VALID","LENGTH","FORMAT","VERIFY","REGION"})
+    public SyntheticIDs.Kind kind;
+
+    private String[] ids;
+    private IDValidator validator;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(){
+            return next++&(SIZE-1);
+        }
+    }
+
+    @Setup
+    public void setup(){
+        ids=SyntheticIDs.generate(kind,SIZE,42);
+        validator=new IDValidator();
+        //加载地区代码
+        validator.validate(ids[0]);
+        ErrorCode expected=kind==SyntheticIDs.Kind.VALID?ErrorCode.SUCCESS:ErrorCode.valueOf(kind.name());
+        for(String id:ids)
+            if(validator.validate(id).getErrorCode()!=expected)
+                throw new IllegalStateException(id+"的验证结果不是"+expected);
+    }
+
+    @Benchmark
+    public ValidationResult validate(Cursor cursor){
+        return validator.validate(ids[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public ValidationResult validateAllThreads(Cursor cursor){
+        return validator.validate(ids[cursor.next()]);
+    }
+
+    @Benchmark
+    public ErrorCode quickCheck(Cursor cursor){
+        return IDValidator.quickCheck(ids[cursor.next()]);
+    }
+
+    @Benchmark
+    public boolean legacyIDValidation(LegacyState state,Cursor cursor) throws IOException {
+        return state.idValidation.validate(ids[cursor.next()]);
+    }
+
+    /**
+     * 每个线程一个保存结果的IDValidation
+     */
+    @State(Scope.Thread)
+    public static class LegacyState {
+        private final IDValidation idValidation=new IDValidation();
+    }
+}
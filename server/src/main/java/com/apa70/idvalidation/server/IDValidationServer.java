@@ -0,0 +1,391 @@
+package com.apa70.idvalidation.server;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.apa70.idvalidation.BatchValidator;
+import com.apa70.idvalidation.IDValidator;
+import com.apa70.idvalidation.RegionIndex;
+import com.apa70.idvalidation.ResultCache;
+import com.apa70.idvalidation.ValidationMetrics;
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 通过HTTP验证身份证号码
+ * <p>
+ * 使用JDK自带的HttpServer，除了idvalidation不需要其他依赖。连接默认保持(HTTP/1.1 keep-alive)，
+ * 请求在固定大小的线程池中处理，验证对象与地区代码只加载一次，所有请求共用。
+ * <ul>
+ *     <li>GET /validate?id=号码 验证一个号码，有多个id参数时返回数组</li>
+ *     <li>POST /validate/batch 批量验证，请求体为JSON数组或者每行一个号码，返回与请求顺序相同的数组</li>
+ *     <li>GET /metrics 统计，Prometheus的文本格式</li>
+ *     <li>GET /health 可以处理请求时返回ok</li>
+ * </ul>
+ * 单个连接上的请求依次处理，大批量请求拆分后在ForkJoinPool中并行验证，
+ * 因此少量请求时使用批量接口，多个连接时使用单个验证接口都可以用满CPU。
+ */
+public final class IDValidationServer implements AutoCloseable {
+
+    /** 默认的端口 */
+    public static final int DEFAULT_PORT=8080;
+    /** 默认的批量验证的号码上限 */
+    public static final int DEFAULT_MAX_BATCH=100000;
+    /** 每个号码在请求体中最多占用的字节数，用来限制请求体的大小 */
+    private static final int BYTES_PER_ID=32;
+
+    private static final String JSON_TYPE="application/json; charset=utf-8";
+    private static final String TEXT_TYPE="text/plain; charset=utf-8";
+
+    private final HttpServer server;
+    /** 处理请求的线程池 */
+    private final ExecutorService executor;
+    /** 并行验证大批量请求的线程池 */
+    private final ForkJoinPool pool;
+    private final IDValidator validator;
+    private final BatchValidator batchValidator;
+    private final ValidationMetrics metrics;
+    /** 批量验证的号码上限 */
+    private final int maxBatch;
+
+    /** 每个接口的请求数量 */
+    private final LongAdder validateRequests=new LongAdder();
+    private final LongAdder batchRequests=new LongAdder();
+    /** 批量验证的号码数量 */
+    private final LongAdder batchIds=new LongAdder();
+    /** 返回4xx的数量 */
+    private final LongAdder clientErrors=new LongAdder();
+    /** 返回5xx的数量 */
+    private final LongAdder serverErrors=new LongAdder();
+
+    /**
+     * @param address 监听的地址
+     * @param path 地区代码的路径，为null时使用自带的数据
+     * @param threads 处理请求的线程数量
+     * @param maxBatch 批量验证的号码上限
+     * @param cache 验证结果的缓存，为null时不缓存
+     * @throws IOException 无法监听时
+     */
+    public IDValidationServer(InetSocketAddress address,String path,int threads,int maxBatch,ResultCache cache) throws IOException {
+        if(threads<=0)
+            throw new IllegalArgumentException("threads必须大于0！");
+        if(maxBatch<=0)
+            throw new IllegalArgumentException("maxBatch必须大于0！");
+        this.maxBatch=maxBatch;
+        this.metrics=new ValidationMetrics();
+        this.validator=new IDValidator(path,metrics,cache);
+        this.pool=new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        this.batchValidator=new BatchValidator(validator,pool,BatchValidator.DEFAULT_CHUNK_SIZE);
+
+        AtomicInteger number=new AtomicInteger();
+        this.executor=Executors.newFixedThreadPool(threads,
+                runnable -> new Thread(runnable,"idvalidation-http-"+number.incrementAndGet()));
+        this.server=HttpServer.create(address,0);
+        server.setExecutor(executor);
+        server.createContext("/validate",handler(this::validate));
+        server.createContext("/validate/batch",handler(this::batch));
+        server.createContext("/metrics",handler(this::metrics));
+        server.createContext("/health",handler(this::health));
+    }
+
+    /**
+     * 开始处理请求，地区代码在第一次验证时加载
+     */
+    public void start(){
+        RegionIndex.addLoadListener(metrics);
+        server.start();
+    }
+
+    /**
+     * 停止接收请求并关闭线程池
+     */
+    @Override
+    public void close(){
+        server.stop(0);
+        executor.shutdown();
+        pool.shutdown();
+        RegionIndex.removeLoadListener(metrics);
+    }
+
+    /**
+     * 实际监听的端口，指定的端口为0时由系统分配
+     * @return int
+     */
+    public int getPort(){
+        return server.getAddress().getPort();
+    }
+
+    public ValidationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * GET /validate?id=号码
+     */
+    private void validate(HttpExchange exchange) throws IOException {
+        if(!"GET".equals(exchange.getRequestMethod())){
+            error(exchange,405,"只支持GET！");
+            return;
+        }
+        if(!"/validate".equals(exchange.getRequestURI().getPath())){
+            error(exchange,404,"不存在的路径！");
+            return;
+        }
+        validateRequests.increment();
+        List<String> ids=queryValues(exchange.getRequestURI().getRawQuery(),"id");
+        if(ids.isEmpty()){
+            error(exchange,400,"缺少参数id！");
+            return;
+        }
+        if(ids.size()>maxBatch){
+            error(exchange,413,"号码的数量超过了"+maxBatch+"！");
+            return;
+        }
+
+        StringBuilder builder=new StringBuilder(ids.size()*256);
+        if(ids.size()==1)
+            ResultJson.write(builder,validator.validate(ids.get(0)));
+        else
+            ResultJson.write(builder,batchValidator.validate(ids.toArray(new String[0])));
+        send(exchange,200,JSON_TYPE,builder);
+    }
+
+    /**
+     * POST /validate/batch，请求体为JSON数组或者每行一个号码
+     */
+    private void batch(HttpExchange exchange) throws IOException {
+        if(!"POST".equals(exchange.getRequestMethod())){
+            error(exchange,405,"只支持POST！");
+            return;
+        }
+        batchRequests.increment();
+        long maxBody=(long)maxBatch*BYTES_PER_ID;
+        String body=readBody(exchange,maxBody);
+        if(body==null){
+            error(exchange,413,"请求体超过了"+maxBody+"字节！");
+            return;
+        }
+
+        String[] ids;
+        try {
+            ids=parseIds(body);
+        }catch (JSONException e){
+            error(exchange,400,"请求体不是字符串数组！");
+            return;
+        }
+        if(ids.length>maxBatch){
+            error(exchange,413,"号码的数量超过了"+maxBatch+"！");
+            return;
+        }
+        batchIds.add(ids.length);
+
+        ValidationResult[] results=batchValidator.validate(ids);
+        StringBuilder builder=new StringBuilder(ids.length*256+2);
+        ResultJson.write(builder,results);
+        send(exchange,200,JSON_TYPE,builder);
+    }
+
+    /**
+     * GET /metrics
+     */
+    private void metrics(HttpExchange exchange) throws IOException {
+        MetricsText text=new MetricsText();
+        text.write(metrics);
+        if(validator.getCache()!=null)
+            text.write(validator.getCache());
+        text.counter("idvalidation_http_requests_total","请求的数量","path","/validate",validateRequests.sum());
+        text.counter("idvalidation_http_requests_total",null,"path","/validate/batch",batchRequests.sum());
+        text.counter("idvalidation_http_batch_ids_total","批量验证的号码数量",null,null,batchIds.sum());
+        text.counter("idvalidation_http_errors_total","返回错误的数量","status","4xx",clientErrors.sum());
+        text.counter("idvalidation_http_errors_total",null,"status","5xx",serverErrors.sum());
+        send(exchange,200,"text/plain; version=0.0.4; charset=utf-8",text.toStringBuilder());
+    }
+
+    /**
+     * GET /health
+     */
+    private void health(HttpExchange exchange) throws IOException {
+        send(exchange,200,TEXT_TYPE,new StringBuilder("ok"));
+    }
+
+    /**
+     * 读取请求体
+     * @return String 超过上限时为null
+     */
+    private static String readBody(HttpExchange exchange,long maxBody) throws IOException {
+        long length=-1;
+        String contentLength=exchange.getRequestHeaders().getFirst("Content-Length");
+        if(contentLength!=null){
+            try {
+                length=Long.parseLong(contentLength.trim());
+            }catch (NumberFormatException ignored){
+            }
+        }
+        if(length>maxBody)
+            return null;
+
+        ByteArrayOutputStream body=new ByteArrayOutputStream(length>0?(int)length:8192);
+        byte[] buffer=new byte[8192];
+        try(InputStream input=exchange.getRequestBody()){
+            int read;
+            while((read=input.read(buffer))>=0){
+                body.write(buffer,0,read);
+                if(body.size()>maxBody)
+                    return null;
+            }
+        }
+        return new String(body.toByteArray(),StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 请求体以'['开始时为JSON数组，否则每行一个号码，忽略空行
+     */
+    static String[] parseIds(String body){
+        int start=0;
+        while(start<body.length()&&Character.isWhitespace(body.charAt(start)))
+            start++;
+        if(start<body.length()&&body.charAt(start)=='['){
+            List<String> ids=JSON.parseArray(body,String.class);
+            if(ids==null)
+                return new String[0];
+            return ids.toArray(new String[0]);
+        }
+
+        List<String> ids=new ArrayList<>();
+        int from=0;
+        while(from<body.length()){
+            int end=body.indexOf('\n',from);
+            if(end<0)
+                end=body.length();
+            String id=body.substring(from,end).trim();
+            if(!id.isEmpty())
+                ids.add(id);
+            from=end+1;
+        }
+        return ids.toArray(new String[0]);
+    }
+
+    /**
+     * 查询字符串中某个参数的所有值
+     */
+    static List<String> queryValues(String query,String name) throws UnsupportedEncodingException {
+        List<String> values=new ArrayList<>(1);
+        if(query==null)
+            return values;
+        int from=0;
+        while(from<=query.length()){
+            int end=query.indexOf('&',from);
+            if(end<0)
+                end=query.length();
+            int equals=query.indexOf('=',from);
+            if(equals>from&&equals<end&&equals-from==name.length()&&query.startsWith(name,from))
+                values.add(URLDecoder.decode(query.substring(equals+1,end),"UTF-8"));
+            from=end+1;
+        }
+        return values;
+    }
+
+    private void error(HttpExchange exchange,int status,String message) throws IOException {
+        StringBuilder builder=new StringBuilder("{\"error\":");
+        ResultJson.string(builder,message);
+        builder.append('}');
+        send(exchange,status,JSON_TYPE,builder);
+    }
+
+    private void send(HttpExchange exchange,int status,String contentType,CharSequence body) throws IOException {
+        if(status>=500)
+            serverErrors.increment();
+        else if(status>=400)
+            clientErrors.increment();
+        byte[] bytes=body.toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",contentType);
+        //指定长度后连接可以继续使用
+        exchange.sendResponseHeaders(status,bytes.length);
+        try(OutputStream output=exchange.getResponseBody()){
+            output.write(bytes);
+        }
+    }
+
+    /**
+     * 处理请求时的异常返回500，读取地区代码失败等异常不会断开连接。
+     * 已经开始发送响应(响应码已经设置)时无法再返回500，只计入错误数并关闭连接，不会再抛出异常掩盖原来的异常
+     */
+    HttpHandler handler(HttpHandler handler){
+        return exchange -> {
+            try {
+                handler.handle(exchange);
+            }catch (IOException e){
+                throw e;
+            }catch (RuntimeException e){
+                if(exchange.getResponseCode()<0)
+                    error(exchange,500,e.getMessage()==null?e.toString():e.getMessage());
+                else
+                    serverErrors.increment();
+            }finally {
+                exchange.close();
+            }
+        };
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port=DEFAULT_PORT;
+        String path=null;
+        int threads=Runtime.getRuntime().availableProcessors()*2;
+        int maxBatch=DEFAULT_MAX_BATCH;
+        int cacheSize=0;
+        try {
+            for(int i=0;i<args.length;i+=2){
+                if(i+1>=args.length)
+                    throw new IllegalArgumentException(args[i]+"缺少值！");
+                String value=args[i+1];
+                switch (args[i]){
+                    case "-port":
+                        port=Integer.parseInt(value);
+                        break;
+                    case "-path":
+                        path=value;
+                        break;
+                    case "-threads":
+                        threads=Integer.parseInt(value);
+                        break;
+                    case "-max-batch":
+                        maxBatch=Integer.parseInt(value);
+                        break;
+                    case "-cache":
+                        cacheSize=Integer.parseInt(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("未知的参数"+args[i]+"！");
+                }
+            }
+        }catch (IllegalArgumentException e){
+            System.err.println(e.getMessage());
+            System.err.println("用法：[-port 端口] [-path 地区代码目录] [-threads 线程数] [-max-batch 批量上限] [-cache 缓存大小]");
+            System.exit(1);
+            return;
+        }
+
+        IDValidationServer server=new IDValidationServer(new InetSocketAddress(port),path,threads,maxBatch,
+                cacheSize>0?new ResultCache(cacheSize):null);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        server.start();
+        System.out.println("监听端口"+server.getPort());
+    }
+}
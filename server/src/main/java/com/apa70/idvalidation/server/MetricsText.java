@@ -0,0 +1,99 @@
+package com.apa70.idvalidation.server;
+
+import com.apa70.idvalidation.ResultCache;
+import com.apa70.idvalidation.ValidationMetrics;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Stage;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Prometheus的文本格式
+ * <p>
+ * 耗时的单位为秒，ValidationMetrics中按2的幂分的桶直接作为histogram的桶，只输出到最后一个有数据的桶。
+ */
+final class MetricsText {
+
+    private final StringBuilder builder=new StringBuilder(4096);
+    /** 已经输出过HELP与TYPE的名称 */
+    private final Set<String> described=new HashSet<>();
+
+    void write(ValidationMetrics metrics){
+        for(ErrorCode errorCode:ErrorCode.values())
+            counter("idvalidation_results_total","验证结果的数量","code",errorCode.name(),metrics.getCount(errorCode));
+        for(Stage stage:Stage.values())
+            histogram("idvalidation_stage_seconds","每个阶段的耗时","stage",stage.name(),metrics.getLatency(stage));
+        histogram("idvalidation_index_load_seconds","地区代码加载的耗时","reload","false",metrics.getIndexLoad(false));
+        histogram("idvalidation_index_load_seconds",null,"reload","true",metrics.getIndexLoad(true));
+        counter("idvalidation_index_load_failures_total","后台重新加载地区代码失败的次数",null,null,metrics.getIndexLoadFailures());
+        for(Map.Entry<Integer,Long> entry:metrics.getRegionVersions().entrySet())
+            counter("idvalidation_region_versions_total","每个地区代码版本被使用的次数","version",String.valueOf(entry.getKey()),entry.getValue());
+    }
+
+    void write(ResultCache cache){
+        counter("idvalidation_cache_hits_total","缓存命中的次数",null,null,cache.getHitCount());
+        counter("idvalidation_cache_misses_total","缓存没有命中的次数",null,null,cache.getMissCount());
+        counter("idvalidation_cache_evictions_total","缓存淘汰的数量",null,null,cache.getEvictionCount());
+        describe("idvalidation_cache_size","缓存中的数量","gauge");
+        sample("idvalidation_cache_size",null,null,null,null,String.valueOf(cache.size()));
+    }
+
+    /**
+     * @param help 说明，同一个名称只需要在第一次时指定
+     * @param label 标签名，为null时没有标签
+     */
+    void counter(String name,String help,String label,String value,long count){
+        describe(name,help,"counter");
+        sample(name,label,value,null,null,String.valueOf(count));
+    }
+
+    private void histogram(String name,String help,String label,String value,ValidationMetrics.Histogram histogram){
+        describe(name,help,"histogram");
+        long[] buckets=histogram.getBuckets();
+        int last=buckets.length-1;
+        while(last>0&&buckets[last]==0)
+            last--;
+        long cumulative=0;
+        for(int i=0;i<=last;i++){
+            cumulative+=buckets[i];
+            sample(name+"_bucket",label,value,"le",seconds((1L<<i)-1),String.valueOf(cumulative));
+        }
+        sample(name+"_bucket",label,value,"le","+Inf",String.valueOf(histogram.getCount()));
+        sample(name+"_sum",label,value,null,null,seconds(histogram.getSum()));
+        sample(name+"_count",label,value,null,null,String.valueOf(histogram.getCount()));
+    }
+
+    private void describe(String name,String help,String type){
+        if(!described.add(name))
+            return;
+        if(help!=null)
+            builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private void sample(String name,String label,String value,String extraLabel,String extraValue,String sample){
+        builder.append(name);
+        if(label!=null||extraLabel!=null){
+            builder.append('{');
+            if(label!=null)
+                builder.append(label).append("=\"").append(value).append('"');
+            if(extraLabel!=null){
+                if(label!=null)
+                    builder.append(',');
+                builder.append(extraLabel).append("=\"").append(extraValue).append('"');
+            }
+            builder.append('}');
+        }
+        builder.append(' ').append(sample).append('\n');
+    }
+
+    private static String seconds(long nanos){
+        return Double.toString(nanos/1e9);
+    }
+
+    StringBuilder toStringBuilder(){
+        return builder;
+    }
+}
@@ -0,0 +1,83 @@
+package com.apa70.idvalidation.server;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+
+/**
+ * 把验证结果写成JSON
+ * <p>
+ * 只写需要的字段，直接追加到StringBuilder，批量结果不需要为每个号码创建中间对象。
+ */
+final class ResultJson {
+
+    private ResultJson(){
+    }
+
+    static void write(StringBuilder builder,ValidationResult result){
+        builder.append("{\"id\":");
+        string(builder,result.getId());
+        builder.append(",\"success\":").append(result.isSuccess());
+        builder.append(",\"errorCode\":\"").append(result.getErrorCode()).append('"');
+        builder.append(",\"errorMsg\":");
+        string(builder,result.getErrorMsg());
+        if(result.isSuccess()){
+            builder.append(",\"birthday\":").append(result.getBirthday());
+            builder.append(",\"sex\":\"").append(result.getSex()).append('"');
+            builder.append(",\"province\":");
+            string(builder,result.getProvince());
+            builder.append(",\"city\":");
+            string(builder,result.getCity());
+            builder.append(",\"county\":");
+            string(builder,result.getCounty());
+            builder.append(",\"provinceCode\":").append(result.getProvinceCode());
+            builder.append(",\"cityCode\":").append(result.getCityCode());
+            builder.append(",\"countyCode\":").append(result.getCountyCode());
+            builder.append(",\"regionVersion\":").append(result.getRegionVersion());
+        }
+        builder.append('}');
+    }
+
+    static void write(StringBuilder builder,ValidationResult[] results){
+        builder.append('[');
+        for(int i=0;i<results.length;i++){
+            if(i>0)
+                builder.append(',');
+            write(builder,results[i]);
+        }
+        builder.append(']');
+    }
+
+    static void string(StringBuilder builder,String value){
+        if(value==null){
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for(int i=0;i<value.length();i++){
+            char c=value.charAt(i);
+            switch (c){
+                case '"':
+                    builder.append("\\\"");
+                    break;
+                case '\\':
+                    builder.append("\\\\");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                default:
+                    if(c<0x20)
+                        builder.append(String.format("\\u%04x",(int)c));
+                    else
+                        builder.append(c);
+                    break;
+            }
+        }
+        builder.append('"');
+    }
+}
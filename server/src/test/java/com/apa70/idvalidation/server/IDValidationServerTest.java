@@ -0,0 +1,261 @@
+package com.apa70.idvalidation.server;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class IDValidationServerTest {
+
+    private IDValidationServer server;
+
+    @Before
+    public void start() throws IOException {
+        //端口为0时由系统分配，批量上限为2，请求体上限为64字节
+        server=new IDValidationServer(new InetSocketAddress(InetAddress.getLoopbackAddress(),0),null,2,2,null);
+        server.start();
+    }
+
+    @After
+    public void close(){
+        server.close();
+    }
+
+    @Test
+    public void validate() throws IOException {
+        Response response=request("GET","/validate?id=370102198511204565",null);
+        Assert.assertEquals(200,response.status);
+        Assert.assertTrue(response.body,response.body.startsWith("{"));
+        Assert.assertTrue(response.body,response.body.contains("\"errorCode\":\"SUCCESS\""));
+
+        //多个id时返回数组
+        response=request("GET","/validate?id=370102198511204565&id=110101199913321238",null);
+        Assert.assertEquals(200,response.status);
+        Assert.assertTrue(response.body,response.body.startsWith("["));
+        Assert.assertTrue(response.body,response.body.indexOf("\"errorCode\":\"SUCCESS\"")<response.body.indexOf("\"errorCode\":\"FORMAT\""));
+    }
+
+    @Test
+    public void batch() throws IOException {
+        Response response=request("POST","/validate/batch","[\"370102198511204565\",\"110101199913321238\"]");
+        Assert.assertEquals(200,response.status);
+        Assert.assertTrue(response.body,response.body.indexOf("\"errorCode\":\"SUCCESS\"")<response.body.indexOf("\"errorCode\":\"FORMAT\""));
+
+        //每行一个号码，忽略空行
+        response=request("POST","/validate/batch","110101199913321238\r\n\n370102198511204565\n");
+        Assert.assertEquals(200,response.status);
+        Assert.assertTrue(response.body,response.body.indexOf("\"errorCode\":\"FORMAT\"")<response.body.indexOf("\"errorCode\":\"SUCCESS\""));
+    }
+
+    @Test
+    public void errors() throws IOException {
+        Assert.assertEquals(405,request("POST","/validate?id=370102198511204565","").status);
+        Assert.assertEquals(405,request("GET","/validate/batch",null).status);
+        Assert.assertEquals(404,request("GET","/validate/other?id=370102198511204565",null).status);
+        Assert.assertEquals(400,request("GET","/validate",null).status);
+        Assert.assertEquals(400,request("POST","/validate/batch","[\"370102198511204565\"").status);
+        //号码的数量超过上限
+        Assert.assertEquals(413,request("GET","/validate?id=1&id=2&id=3",null).status);
+        Assert.assertEquals(413,request("POST","/validate/batch","1\n2\n3").status);
+        //请求体超过上限
+        char[] body=new char[100];
+        Arrays.fill(body,'1');
+        Response response=request("POST","/validate/batch",new String(body));
+        Assert.assertEquals(413,response.status);
+        Assert.assertTrue(response.body,response.body.startsWith("{\"error\":"));
+    }
+
+    @Test
+    public void metrics() throws IOException {
+        request("GET","/validate?id=370102198511204565",null);
+        request("POST","/validate/batch","370102198511204565\n110101199913321238");
+        request("GET","/validate",null);
+
+        Response response=request("GET","/metrics",null);
+        Assert.assertEquals(200,response.status);
+        Assert.assertTrue(response.body,response.body.contains("idvalidation_http_requests_total{path=\"/validate\"} 2\n"));
+        Assert.assertTrue(response.body,response.body.contains("idvalidation_http_requests_total{path=\"/validate/batch\"} 1\n"));
+        Assert.assertTrue(response.body,response.body.contains("idvalidation_http_batch_ids_total 2\n"));
+        Assert.assertTrue(response.body,response.body.contains("idvalidation_http_errors_total{status=\"4xx\"} 1\n"));
+        Assert.assertTrue(response.body,response.body.contains("idvalidation_results_total{code=\"SUCCESS\"} 2\n"));
+        Assert.assertEquals(200,request("GET","/health",null).status);
+    }
+
+    @Test
+    public void exceptionBeforeResponse() throws IOException {
+        RecordingExchange exchange=new RecordingExchange();
+        server.handler(e -> {
+            throw new IllegalStateException("失败");
+        }).handle(exchange);
+        Assert.assertEquals(Collections.singletonList(500),exchange.statuses);
+        Assert.assertTrue(exchange.closed);
+    }
+
+    @Test
+    public void exceptionAfterResponse() throws IOException {
+        RecordingExchange exchange=new RecordingExchange();
+        server.handler(e -> {
+            e.sendResponseHeaders(200,0);
+            throw new IllegalStateException("失败");
+        }).handle(exchange);
+        //已经发送了200，不能再发送500，只计入错误数并关闭
+        Assert.assertEquals(Collections.singletonList(200),exchange.statuses);
+        Assert.assertTrue(exchange.closed);
+        Assert.assertTrue(request("GET","/metrics",null).body.contains("idvalidation_http_errors_total{status=\"5xx\"} 1\n"));
+    }
+
+    @Test
+    public void parseIds(){
+        Assert.assertArrayEquals(new String[]{"1","2"},IDValidationServer.parseIds(" [\"1\",\"2\"]"));
+        Assert.assertArrayEquals(new String[]{"1","2"},IDValidationServer.parseIds("1\r\n\n 2 \n"));
+        Assert.assertArrayEquals(new String[0],IDValidationServer.parseIds(""));
+    }
+
+    @Test
+    public void queryValues() throws IOException {
+        Assert.assertEquals(Arrays.asList("1","2 3"),IDValidationServer.queryValues("id=1&ids=x&id=2+3&xid=4","id"));
+        Assert.assertEquals(Collections.singletonList(""),IDValidationServer.queryValues("a=1&id=","id"));
+        Assert.assertTrue(IDValidationServer.queryValues(null,"id").isEmpty());
+        Assert.assertTrue(IDValidationServer.queryValues("id","id").isEmpty());
+    }
+
+    private Response request(String method,String path,String body) throws IOException {
+        HttpURLConnection connection=(HttpURLConnection)new URL("http://127.0.0.1:"+server.getPort()+path).openConnection();
+        connection.setRequestMethod(method);
+        if(body!=null){
+            connection.setDoOutput(true);
+            try(OutputStream output=connection.getOutputStream()){
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Response response=new Response();
+        response.status=connection.getResponseCode();
+        try(InputStream input=response.status<400?connection.getInputStream():connection.getErrorStream()){
+            ByteArrayOutputStream bytes=new ByteArrayOutputStream();
+            byte[] buffer=new byte[8192];
+            int read;
+            while(input!=null&&(read=input.read(buffer))>=0)
+                bytes.write(buffer,0,read);
+            response.body=new String(bytes.toByteArray(),StandardCharsets.UTF_8);
+        }
+        return response;
+    }
+
+    private static class Response {
+        int status;
+        String body;
+    }
+
+    /**
+     * 记录发送的响应码，不实际发送
+     */
+    private static class RecordingExchange extends HttpExchange {
+
+        private final List<Integer> statuses=new ArrayList<>();
+        private final Headers responseHeaders=new Headers();
+        private boolean closed=false;
+
+        @Override
+        public Headers getRequestHeaders() {
+            return new Headers();
+        }
+
+        @Override
+        public Headers getResponseHeaders() {
+            return responseHeaders;
+        }
+
+        @Override
+        public URI getRequestURI() {
+            return URI.create("/test");
+        }
+
+        @Override
+        public String getRequestMethod() {
+            return "GET";
+        }
+
+        @Override
+        public HttpContext getHttpContext() {
+            return null;
+        }
+
+        @Override
+        public void close() {
+            closed=true;
+        }
+
+        @Override
+        public InputStream getRequestBody() {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+
+        @Override
+        public OutputStream getResponseBody() {
+            return new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void sendResponseHeaders(int status,long length) {
+            statuses.add(status);
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public int getResponseCode() {
+            return statuses.isEmpty()?-1:statuses.get(statuses.size()-1);
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public String getProtocol() {
+            return "HTTP/1.1";
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            return null;
+        }
+
+        @Override
+        public void setAttribute(String name,Object value) {
+        }
+
+        @Override
+        public void setStreams(InputStream input,OutputStream output) {
+        }
+
+        @Override
+        public HttpPrincipal getPrincipal() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 异步验证身份证号码
+ * <p>
+ * 验证在后台线程中进行，调用的线程不会被阻塞，适合在事件循环(如响应式网关)中使用。
+ * 同时在验证中的号码数量有上限：单个验证超过上限时立即返回失败的Future(RejectedExecutionException)，
+ * 批量验证时只有在有空位时才读取下一个号码，不会把所有号码一次放入队列。
+ * <p>
+ * 没有指定线程池时，JDK支持虚拟线程(21及以上)时每个号码使用一个虚拟线程，否则使用与CPU数量相同的后台线程。
+ * 使用完后调用{@link #close()}关闭自己创建的线程池。
+ */
+public final class AsyncValidator implements AutoCloseable {
+
+    /** 默认的同时验证中的号码上限 */
+    public static final int DEFAULT_MAX_PENDING=10000;
+
+    /** 实际进行验证的对象 */
+    private final IDValidator validator;
+    /** 执行验证的线程池 */
+    private final Executor executor;
+    /** 是否为自己创建的线程池，关闭时需要关闭 */
+    private final boolean ownsExecutor;
+    /** 执行验证的是否为虚拟线程 */
+    private final boolean virtualThreads;
+    /** 同时验证中的号码上限 */
+    private final int maxPending;
+    /** 剩余的空位 */
+    private final Semaphore permits;
+    /** 进行中的批量验证，有空位时通知它们继续读取 */
+    private final Set<Pump> pumps=ConcurrentHashMap.newKeySet();
+
+    /**
+     * 使用虚拟线程或者自己创建的线程池，同时验证中的号码上限为{@value #DEFAULT_MAX_PENDING}
+     * @param validator 验证对象
+     */
+    public AsyncValidator(IDValidator validator){
+        this(validator,null,DEFAULT_MAX_PENDING);
+    }
+
+    /**
+     * 使用虚拟线程或者自己创建的线程池
+     * @param validator 验证对象
+     * @param maxPending 同时验证中的号码上限
+     */
+    public AsyncValidator(IDValidator validator,int maxPending){
+        this(validator,null,maxPending);
+    }
+
+    /**
+     * @param validator 验证对象
+     * @param executor 执行验证的线程池，为null时使用虚拟线程或者自己创建的线程池
+     * @param maxPending 同时验证中的号码上限
+     */
+    public AsyncValidator(IDValidator validator,Executor executor,int maxPending){
+        if(validator==null)
+            throw new IllegalArgumentException("validator不能为null！");
+        if(maxPending<=0)
+            throw new IllegalArgumentException("maxPending必须大于0！");
+        this.validator=validator;
+        this.maxPending=maxPending;
+        this.permits=new Semaphore(maxPending);
+        if(executor!=null){
+            this.executor=executor;
+            this.ownsExecutor=false;
+            this.virtualThreads=false;
+        }else{
+            ExecutorService virtual=newVirtualThreadExecutor();
+            this.executor=virtual!=null?virtual:newDaemonExecutor();
+            this.ownsExecutor=true;
+            this.virtualThreads=virtual!=null;
+        }
+    }
+
+    /**
+     * 异步验证，不阻塞调用的线程
+     * @param id 身份证号码
+     * @return CompletableFuture 验证结果，验证中的号码已经达到上限时为RejectedExecutionException，读取地区代码失败时为IndexFileException
+     */
+    public CompletableFuture<ValidationResult> validate(String id){
+        CompletableFuture<ValidationResult> future=new CompletableFuture<>();
+        if(!permits.tryAcquire()){
+            future.completeExceptionally(new RejectedExecutionException("验证中的号码已经达到上限"+maxPending+"！"));
+            return future;
+        }
+        execute(() -> {
+            try {
+                future.complete(validator.validate(id));
+            }catch (Throwable e){
+                future.completeExceptionally(e);
+            }
+        },null,future::completeExceptionally);
+        return future;
+    }
+
+    /**
+     * 异步批量验证，只在有空位时才读取下一个号码，调用的线程不会被阻塞
+     * <p>
+     * 结果的顺序与读取的顺序不一定相同，consumer会在多个验证线程中同时调用，必须是线程安全的。
+     * @param ids 身份证号码，同一时间只有一个线程读取(不会同时调用hasNext/next)，
+     *            但是可能在调用的线程与不同的验证线程中轮流读取，不能依赖只在某一个线程中使用
+     * @param consumer 处理每个验证结果
+     * @return CompletableFuture 全部验证并处理完成后完成，任何一个失败时为失败的原因并停止读取
+     */
+    public CompletableFuture<Void> validateAll(Iterator<String> ids,Consumer<? super ValidationResult> consumer){
+        Pump pump=new Pump(ids,consumer);
+        pumps.add(pump);
+        pump.future.whenComplete((result,e) -> pumps.remove(pump));
+        pump.drain();
+        return pump.future;
+    }
+
+    /**
+     * 当前剩余的空位
+     * @return int
+     */
+    public int getAvailable(){
+        return permits.availablePermits();
+    }
+
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * 执行验证的是否为虚拟线程
+     * @return bool
+     */
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 关闭自己创建的线程池，已经开始的验证会继续完成。指定的线程池不会被关闭
+     */
+    @Override
+    public void close(){
+        if(ownsExecutor)
+            ((ExecutorService)executor).shutdown();
+    }
+
+    /**
+     * 在线程池中执行，完成后释放空位
+     * @param task 任务
+     * @param released 释放空位后执行，可以为null
+     * @param rejected 线程池拒绝时执行
+     */
+    private void execute(Runnable task,Runnable released,Consumer<Throwable> rejected){
+        try {
+            executor.execute(() -> {
+                try {
+                    task.run();
+                }finally {
+                    permits.release();
+                    if(released!=null)
+                        released.run();
+                    for(Pump pump:pumps)
+                        pump.drain();
+                }
+            });
+        }catch (RejectedExecutionException e){
+            permits.release();
+            rejected.accept(e);
+        }
+    }
+
+    /**
+     * JDK 21及以上时每个任务一个虚拟线程
+     * @return ExecutorService 不支持时为null
+     */
+    private static ExecutorService newVirtualThreadExecutor(){
+        try {
+            Method method=Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService)method.invoke(null);
+        } catch (ReflectiveOperationException|RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static ExecutorService newDaemonExecutor(){
+        AtomicInteger number=new AtomicInteger();
+        return Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),runnable -> {
+            Thread thread=new Thread(runnable,"idvalidation-async-"+number.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 批量验证的状态：有空位时读取下一个号码，每个号码验证完成后再次尝试读取
+     */
+    private final class Pump {
+
+        private final Iterator<String> ids;
+        private final Consumer<? super ValidationResult> consumer;
+        private final CompletableFuture<Void> future=new CompletableFuture<>();
+        /** 正在尝试读取的次数，保证同一时间只有一个线程读取ids，不同的时间可能是不同的线程 */
+        private final AtomicInteger wip=new AtomicInteger();
+        /** 已经提交还没有完成的数量 */
+        private final AtomicInteger inFlight=new AtomicInteger();
+        /** ids是否已经读取完 */
+        private volatile boolean exhausted=false;
+
+        Pump(Iterator<String> ids,Consumer<? super ValidationResult> consumer){
+            this.ids=ids;
+            this.consumer=consumer;
+        }
+
+        void drain(){
+            if(wip.getAndIncrement()!=0)
+                return;
+            do {
+                while(!exhausted&&!future.isDone()&&permits.tryAcquire()){
+                    String id;
+                    try {
+                        if(!ids.hasNext()){
+                            permits.release();
+                            exhausted=true;
+                            break;
+                        }
+                        id=ids.next();
+                    }catch (Throwable e){
+                        permits.release();
+                        future.completeExceptionally(e);
+                        break;
+                    }
+                    inFlight.incrementAndGet();
+                    execute(() -> {
+                        try {
+                            if(!future.isDone())
+                                consumer.accept(validator.validate(id));
+                        }catch (Throwable e){
+                            future.completeExceptionally(e);
+                        }
+                    },inFlight::decrementAndGet,e -> {
+                        inFlight.decrementAndGet();
+                        future.completeExceptionally(e);
+                    });
+                }
+                if(exhausted&&inFlight.get()==0)
+                    future.complete(null);
+            }while(wip.decrementAndGet()!=0);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.stream.Stream;
+
+/**
+ * 批量验证身份证号码
+ * <p>
+ * 结果的顺序与传入的顺序相同，整批共用同一个地区代码索引。指定了ForkJoinPool时按分块大小拆分后并行验证，
+ * 否则在当前线程依次验证。创建后不可修改，可以在多线程下共用。
+ */
+public final class BatchValidator {
+
+    /** 默认的分块大小 */
+    public static final int DEFAULT_CHUNK_SIZE=1024;
+
+    /** 实际进行验证的对象 */
+    private final IDValidator validator;
+    /** 并行验证使用的线程池，为null时不并行 */
+    private final ForkJoinPool pool;
+    /** 每个任务最多验证的数量 */
+    private final int chunkSize;
+
+    /**
+     * 在当前线程依次验证
+     * @param validator 验证对象
+     */
+    public BatchValidator(IDValidator validator){
+        this(validator,null,DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param validator 验证对象
+     * @param pool 并行验证使用的线程池，为null时不并行
+     * @param chunkSize 每个任务最多验证的数量
+     */
+    public BatchValidator(IDValidator validator,ForkJoinPool pool,int chunkSize){
+        if(validator==null)
+            throw new IllegalArgumentException("validator不能为null！");
+        if(chunkSize<=0)
+            throw new IllegalArgumentException("chunkSize必须大于0！");
+        this.validator=validator;
+        this.pool=pool;
+        this.chunkSize=chunkSize;
+    }
+
+    /**
+     * 批量验证
+     * @param ids 身份证号码
+     * @return ValidationResult[] 与ids顺序相同的验证结果
+     */
+    public ValidationResult[] validate(String[] ids){
+        ValidationResult[] results=new ValidationResult[ids.length];
+        if(ids.length==0)
+            return results;
+
+        run(ids,validator.getRegionIndex(),(i,id,index) -> results[i]=validator.validate(id,index));
+        return results;
+    }
+
+    /**
+     * 批量验证，按列返回结果，不为每个号码创建对象
+     * @param ids 身份证号码
+     * @return ValidationColumns 与ids顺序相同的验证结果，不使用验证对象的缓存
+     */
+    public ValidationColumns validateColumns(String[] ids){
+        RegionIndex index=validator.getRegionIndex().whole();
+        ValidationColumns columns=new ValidationColumns(ids,null,ids.length,index.getTable().namePool());
+        if(ids.length==0)
+            return columns;
+
+        run(ids,index,(i,id,regionIndex) -> validator.validate(id,regionIndex,columns,i));
+        return columns;
+    }
+
+    /**
+     * 批量验证
+     * @param ids 身份证号码
+     * @return List 与ids顺序相同的验证结果，固定大小
+     */
+    public List<ValidationResult> validate(List<String> ids){
+        return Arrays.asList(validate(ids.toArray(new String[0])));
+    }
+
+    /**
+     * 批量验证
+     * @param ids 身份证号码
+     * @return List 与ids顺序相同的验证结果，固定大小
+     */
+    public List<ValidationResult> validate(Stream<String> ids){
+        return Arrays.asList(validate(ids.toArray(String[]::new)));
+    }
+
+    /**
+     * 验证全部号码，指定了线程池并且超过分块大小时并行
+     */
+    private void run(String[] ids,RegionIndex index,Sink sink){
+        if(pool==null||ids.length<=chunkSize)
+            validate(ids,index,sink,0,ids.length);
+        else
+            pool.invoke(new ValidateTask(ids,index,sink,0,ids.length));
+    }
+
+    /**
+     * 验证ids中from到to之间的号码
+     */
+    private static void validate(String[] ids,RegionIndex index,Sink sink,int from,int to){
+        for(int i=from;i<to;i++)
+            sink.validate(i,ids[i],index);
+    }
+
+    public IDValidator getValidator() {
+        return validator;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * 验证一个号码并写到第i个结果，按行与按列各有一个实现
+     */
+    private interface Sink {
+        void validate(int i,String id,RegionIndex index);
+    }
+
+    /**
+     * 拆分到不超过分块大小后验证
+     */
+    private final class ValidateTask extends RecursiveAction {
+
+        private static final long serialVersionUID=1L;
+
+        private final String[] ids;
+        private final RegionIndex index;
+        private final Sink sink;
+        private final int from;
+        private final int to;
+
+        ValidateTask(String[] ids,RegionIndex index,Sink sink,int from,int to){
+            this.ids=ids;
+            this.index=index;
+            this.sink=sink;
+            this.from=from;
+            this.to=to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to-from<=chunkSize){
+                validate(ids,index,sink,from,to);
+                return;
+            }
+            int middle=(from+to)>>>1;
+            invokeAll(new ValidateTask(ids,index,sink,from,middle),new ValidateTask(ids,index,sink,middle,to));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.apa70.idvalidation;
+
+import java.time.LocalDate;
+
+/**
+ * 身份证号码中出生日期的解析
+ * <p>
+ * 直接从第7到14位的数字计算年月日并严格效验(包括闰年)，结果为yyyyMMdd格式的int，不创建任何对象。
+ */
+final class BirthDate {
+
+    /** 最早的出生年份 */
+    static final int MIN_YEAR=1800;
+    /** 每月的天数，二月按平年 */
+    private static final int[] DAYS_OF_MONTH={31,28,31,30,31,30,31,31,30,31,30,31};
+    /** 今天的刷新间隔(毫秒) */
+    private static final long TODAY_REFRESH=60*1000L;
+
+    /** 今天，yyyyMMdd */
+    private static volatile int today;
+    /** 今天需要重新计算的时间 */
+    private static volatile long todayExpire;
+
+    private BirthDate(){
+    }
+
+    /**
+     * 解析出生日期，第7到14位必须已经确认为数字
+     * @param id 身份证号码
+     * @return int yyyyMMdd，日期不存在、早于{@link #MIN_YEAR}或者晚于今天时为-1
+     */
+    static int decode(CharSequence id){
+        int year=(id.charAt(6)-'0')*1000+(id.charAt(7)-'0')*100+(id.charAt(8)-'0')*10+(id.charAt(9)-'0');
+        int month=(id.charAt(10)-'0')*10+(id.charAt(11)-'0');
+        int day=(id.charAt(12)-'0')*10+(id.charAt(13)-'0');
+        if(year<MIN_YEAR||month<1||month>12||day<1)
+            return -1;
+        if(day>DAYS_OF_MONTH[month-1]&&!(month==2&&day==29&&isLeapYear(year)))
+            return -1;
+
+        int birthday=year*10000+month*100+day;
+        return birthday>today()?-1:birthday;
+    }
+
+    /**
+     * 某个月的天数
+     * @param year 年
+     * @param month 月，1到12
+     * @return int
+     */
+    static int daysOfMonth(int year,int month){
+        return month==2&&isLeapYear(year)?29:DAYS_OF_MONTH[month-1];
+    }
+
+    /**
+     * 是否为闰年
+     * @param year 年
+     * @return bool
+     */
+    static boolean isLeapYear(int year){
+        return (year&3)==0&&(year%100!=0||year%400==0);
+    }
+
+    /**
+     * 今天，每分钟最多计算一次
+     * @return int yyyyMMdd
+     */
+    static int today(){
+        long now=System.currentTimeMillis();
+        if(now>=todayExpire){
+            LocalDate date=LocalDate.now();
+            today=date.getYear()*10000+date.getMonthValue()*100+date.getDayOfMonth();
+            todayExpire=now+TODAY_REFRESH;
+        }
+        return today;
+    }
+}
@@ -0,0 +1,218 @@
+package com.apa70.idvalidation;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONException;
+import com.alibaba.fastjson.JSONObject;
+import com.alibaba.fastjson.JSONReader;
+import com.alibaba.fastjson.TypeReference;
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * code.json的内容
+ * <p>
+ * 有两种格式。原来的格式为 行政代码 -&gt; (版本 -&gt; 名称)，大部分名称在所有版本中都相同，却每个版本都保存一份。
+ * 压缩格式只保存名称变化的位置：
+ * <pre>
+ * {"versions":[198000,198100,...,202000],"codes":{"110101":{"198000-201900":"东城区","202000":"东城区(新)"}}}
+ * </pre>
+ * versions为文件中所有的版本，"开始版本-结束版本"表示versions中这两个版本之间(包括两端)的每个版本都是这个名称，
+ * 只有一个版本时只写这个版本。行政代码在某个版本中没有时在那里断开，所以展开后与原来的数据完全相同，
+ * 查找最近的版本的结果也完全相同。
+ * <p>
+ * {@link Collect}写出压缩格式，读取时两种格式都可以。
+ */
+final class CodeFile {
+
+    /** 压缩格式中所有版本的key */
+    static final String VERSIONS="versions";
+    /** 压缩格式中行政代码的key */
+    static final String CODES="codes";
+
+    /** 文件中所有的版本，从小到大，原来的格式为null */
+    private final int[] versions;
+    /** 行政代码 -> (版本或者版本范围 -> 名称) */
+    private final Map<String,Map<String,String>> codes;
+
+    CodeFile(int[] versions,Map<String,Map<String,String>> codes){
+        this.versions=versions;
+        this.codes=codes;
+    }
+
+    /**
+     * 解析json，两种格式都可以
+     * @param text json
+     * @return CodeFile
+     */
+    static CodeFile parse(String text){
+        //原来的格式中的key都是数字
+        if(!text.contains("\""+VERSIONS+"\"")){
+            Map<String,Map<String,String>> codeMap=JSON.parseObject(text,new TypeReference<Map<String,Map<String,String>>>(){});
+            return new CodeFile(null,codeMap!=null?codeMap:new HashMap<String,Map<String,String>>());
+        }
+        JSONObject json=JSON.parseObject(text);
+        int[] versions=json.getObject(VERSIONS,int[].class);
+        Map<String,Map<String,String>> codeMap=json.getObject(CODES,new TypeReference<Map<String,Map<String,String>>>(){}.getType());
+        return new CodeFile(versions,codeMap!=null?codeMap:new HashMap<String,Map<String,String>>());
+    }
+
+    /**
+     * 流式读取，只保留一个省的行政代码，其他省的只解析不保存，两种格式都可以
+     * @param inputStream 索引文件的inputStream对象
+     * @param province 省(前两位)
+     * @return CodeFile
+     * @throws IOException
+     */
+    static CodeFile read(InputStream inputStream,int province) throws IOException {
+        String prefix=String.format("%02d",province);
+        int[] versions=null;
+        Map<String,Map<String,String>> codeMap=new HashMap<>();
+        try(JSONReader reader=new JSONReader(new InputStreamReader(inputStream,StandardCharsets.UTF_8))) {
+            reader.startObject();
+            while(reader.hasNext()){
+                String key=reader.readString();
+                if(key.equals(VERSIONS)){
+                    versions=reader.readObject(int[].class);
+                }else if(key.equals(CODES)){
+                    reader.startObject();
+                    while(reader.hasNext())
+                        readCode(reader,reader.readString(),prefix,codeMap);
+                    reader.endObject();
+                }else{
+                    readCode(reader,key,prefix,codeMap);
+                }
+            }
+            reader.endObject();
+        } catch (JSONException e) {
+            throw new IndexFileException("索引文件格式不正确！"+e.getMessage(),e);
+        }
+        return new CodeFile(versions,codeMap);
+    }
+
+    private static void readCode(JSONReader reader,String code,String prefix,Map<String,Map<String,String>> codeMap){
+        if(code.startsWith(prefix))
+            codeMap.put(code,reader.readObject(new TypeReference<Map<String,String>>(){}));
+        else
+            reader.readObject();
+    }
+
+    /**
+     * 压缩原来格式的数据
+     * @param codeMap 行政代码 -> (版本 -> 名称)
+     * @return CodeFile
+     */
+    static CodeFile compact(Map<String,Map<String,String>> codeMap){
+        //所有的版本
+        TreeSet<Integer> versionSet=new TreeSet<>();
+        for(Map<String,String> dateMap:codeMap.values()){
+            for(String version:dateMap.keySet())
+                versionSet.add(parseNumber(version));
+        }
+        int[] versions=new int[versionSet.size()];
+        int i=0;
+        for(Integer version:versionSet)
+            versions[i++]=version;
+
+        Map<String,Map<String,String>> codes=new TreeMap<>();
+        for(Map.Entry<String,Map<String,String>> entry:codeMap.entrySet()){
+            TreeMap<Integer,String> dateMap=new TreeMap<>();
+            for(Map.Entry<String,String> dateEntry:entry.getValue().entrySet())
+                dateMap.put(parseNumber(dateEntry.getKey()),dateEntry.getValue());
+
+            //versions中相邻并且名称相同的版本合并为一段
+            Map<String,String> ranges=new LinkedHashMap<>();
+            int from=-1,to=-1;
+            String name=null;
+            for(Map.Entry<Integer,String> dateEntry:dateMap.entrySet()){
+                int index=Arrays.binarySearch(versions,dateEntry.getKey());
+                if(from>=0&&index==to+1&&dateEntry.getValue().equals(name)){
+                    to=index;
+                    continue;
+                }
+                if(from>=0)
+                    ranges.put(key(versions,from,to),name);
+                from=to=index;
+                name=dateEntry.getValue();
+            }
+            if(from>=0)
+                ranges.put(key(versions,from,to),name);
+            codes.put(entry.getKey(),ranges);
+        }
+        return new CodeFile(versions,codes);
+    }
+
+    private static String key(int[] versions,int from,int to){
+        return from==to?String.valueOf(versions[from]):versions[from]+"-"+versions[to];
+    }
+
+    /**
+     * 版本或者版本范围中的每个版本
+     * @param key 版本或者版本范围
+     * @return int[]
+     */
+    int[] versions(String key){
+        int separator=key.indexOf('-');
+        if(separator<0)
+            return new int[]{parseNumber(key)};
+        if(versions==null)
+            throw new IndexFileException("索引文件中有版本范围但是没有"+VERSIONS+"："+key);
+        int from=Arrays.binarySearch(versions,parseNumber(key.substring(0,separator)));
+        int to=Arrays.binarySearch(versions,parseNumber(key.substring(separator+1)));
+        if(from<0||to<from)
+            throw new IndexFileException("索引文件中的版本范围不正确："+key);
+        return Arrays.copyOfRange(versions,from,to+1);
+    }
+
+    /**
+     * 展开为原来的格式
+     * @return 行政代码 -> (版本 -> 名称)，可以修改
+     */
+    Map<String,Map<String,String>> expand(){
+        Map<String,Map<String,String>> codeMap=new HashMap<>();
+        for(Map.Entry<String,Map<String,String>> entry:codes.entrySet()){
+            Map<String,String> dateMap=new HashMap<>();
+            for(Map.Entry<String,String> range:entry.getValue().entrySet()){
+                for(int version:versions(range.getKey()))
+                    dateMap.put(String.valueOf(version),range.getValue());
+            }
+            codeMap.put(entry.getKey(),dateMap);
+        }
+        return codeMap;
+    }
+
+    /**
+     * 压缩格式的json，versions在codes之前，流式读取时可以先得到所有的版本
+     * @return String
+     */
+    String toJSONString(){
+        Map<String,Object> json=new LinkedHashMap<>();
+        json.put(VERSIONS,versions!=null?versions:new int[0]);
+        json.put(CODES,codes);
+        return JSON.toJSONString(json);
+    }
+
+    boolean isCompact(){
+        return versions!=null;
+    }
+
+    /**
+     * 行政代码 -> (版本或者版本范围 -> 名称)
+     * @return Map
+     */
+    Map<String,Map<String,String>> getCodes(){
+        return codes;
+    }
+
+    private static int parseNumber(String number){
+        try {
+            return Integer.parseInt(number);
+        }catch (NumberFormatException e){
+            throw new IndexFileException("索引文件中的行政代码或版本不是数字："+number);
+        }
+    }
+}
@@ -1,22 +1,67 @@
 package com.apa70.idvalidation;
 
-import com.alibaba.fastjson.JSON;
-import com.alibaba.fastjson.TypeReference;
 import com.apa70.idvalidation.exception.*;
 
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Element;
-import org.jsoup.select.Elements;
-
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Collect {
 
+    /** 批量添加时html文件名的格式，6位数字为版本号 */
+    private static final Pattern VERSION_FILE_PATTERN=Pattern.compile("(?<!\\d)(\\d{6})(?!\\d).*\\.html?$",Pattern.CASE_INSENSITIVE);
+
+    /** 默认的判断数字的正则表达式 */
+    private static final String DEFAULT_NUM_REGULAR="-?[1-9]\\d*";
+
     /** 判断数字的正则表达式 */
-    private String numRegular="-?[1-9]\\d*";
+    private String numRegular=DEFAULT_NUM_REGULAR;
+    /** 编译后的numRegular，为默认值时不使用正则表达式 */
+    private Pattern numPattern=null;
+    /** 添加数据后是否同时生成code.bin快照 */
+    private boolean snapshot=false;
+    /** 批量添加时解析的线程数 */
+    private int threads=Runtime.getRuntime().availableProcessors();
+
+    /**
+     * 命令行使用
+     * <pre>
+     * snapshot 目录            为目录下的administrative-code-data/code.json生成code.bin快照
+     * compact 目录             把目录下原来格式的code.json改写为压缩格式
+     * add html目录 目录        添加html目录下所有还没有的版本，同时生成code.bin快照
+     * </pre>
+     * @param args 参数
+     * @throws IOException
+     */
+    public static void main(String[] args) throws IOException {
+        if(args.length==2&&args[0].equals("snapshot")){
+            new Collect().snapshot(args[1]);
+            return;
+        }
+        if(args.length==2&&args[0].equals("compact")){
+            File json=new File(args[1]+"/administrative-code-data/code.json");
+            long length=json.length();
+            new Collect().compact(args[1]);
+            System.out.println("code.json从"+length+"字节压缩为"+json.length()+"字节");
+            return;
+        }
+        if(args.length==3&&args[0].equals("add")){
+            Collect collect=new Collect();
+            collect.setSnapshot(true);
+            System.out.println("添加了"+collect.addAll(new File(args[1]),args[2])+"个版本");
+            return;
+        }
+        System.err.println("用法：snapshot 目录");
+        System.err.println("      compact 目录");
+        System.err.println("      add html目录 目录");
+        System.exit(1);
+    }
 
     /**
      * 添加一个新的数据到某个目录
@@ -26,19 +71,13 @@ public class Collect {
      * @throws IOException
      */
     public void add(File file,int version, String path) throws IOException {
-        InputStream inputStream=new FileInputStream(file);
-        StringBuilder sbf = new StringBuilder();
-        try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
-            String line;
-            while ((line = br.readLine()) != null) {
-                sbf.append(line);
-            }
+        Map<String,Map<String,String>> codeMap=read(path);
+        put(codeMap,version,parse(file));
 
-            this.add(sbf.toString(),version,path);
-        }finally {
-            inputStream.close();
+        if(codeMap.size()<=0){
+            throw new GetInfoException("获取信息失败！");
         }
+        write(CodeFile.compact(codeMap),path);
     }
 
     /**
@@ -49,62 +88,204 @@ public class Collect {
      * @throws IOException
      */
     public void add(String htmlString, int version, String path) throws IOException{
-        //一些变量
-        String administrativeCode = "";
-        Map<String,Map<String,String>> codeMap=null;
-        Map<String,String> codeDateMap=null;
-        File administrativeCodeDataFile=null;
-        String pathData=path+"/administrative-code-data/";
-        path+="/administrative-code-data/code.json";
-        Writer codeMapWriter=null;
+        Map<String,Map<String,String>> codeMap=read(path);
+        put(codeMap,version,parse(new HtmlTableReader(new StringReader(htmlString))));
 
-        //判断是否有数据
-        File pathFile=new File(path);
-        if(pathFile.exists()) {
-            codeMap = JSON.parseObject(getFileText(pathFile), new TypeReference<Map<String, Map<String, String>>>(){});
-        }else {
-            codeMap = new HashMap<>();
+        if(codeMap.size()<=0){
+            throw new GetInfoException("获取信息失败！");
+        }
+        write(CodeFile.compact(codeMap),path);
+    }
+
+    /**
+     * 一次添加一个目录下的所有html文件，文件名中的6位数字为版本号，如 201901.html
+     * <p>
+     * 多个线程同时解析，全部解析完成后合并到已有的数据中，只写一次code.json(与code.bin)。
+     * 已有数据中已经存在的版本不会再解析，所以增加新一年的数据时只解析新的文件。
+     * <p>
+     * 增量的只是解析：code.json总是整个重写，不追加。压缩格式(见{@link CodeFile})中名称没有变化的代码只有一段版本范围，
+     * 新的版本会延长已有的范围(如 "198000-201900" 变为 "198000-202000")，追加的方式仍然要改写大部分已有的内容，
+     * 还要在读取时合并多个文件。压缩后整个文件只有几百KB，重写的时间远小于解析html。
+     * @param directory html文件所在的目录
+     * @param path 存储地址
+     * @return int 新添加的版本数量，没有新的版本时不会重写文件
+     * @throws IOException
+     */
+    public int addAll(File directory, String path) throws IOException {
+        File[] files=directory.listFiles();
+        if(files==null)
+            throw new GetInfoException("找不到"+directory+"！");
+
+        //按版本排序，同一个版本有多个文件时后面的覆盖前面的
+        TreeMap<Integer,List<File>> versionFiles=new TreeMap<>();
+        for(File file:files){
+            Matcher matcher=VERSION_FILE_PATTERN.matcher(file.getName());
+            if(!file.isFile()||!matcher.find())
+                continue;
+            int version=Integer.parseInt(matcher.group(1));
+            List<File> list=versionFiles.get(version);
+            if(list==null){
+                list=new ArrayList<>();
+                versionFiles.put(version,list);
+            }
+            list.add(file);
         }
+        for(List<File> list:versionFiles.values())
+            Collections.sort(list);
 
+        //已有的版本不再解析
+        Map<String,Map<String,String>> codeMap=read(path);
+        for(Map<String,String> dateMap:codeMap.values()){
+            for(String version:dateMap.keySet())
+                versionFiles.remove(Integer.valueOf(version));
+        }
+        if(versionFiles.isEmpty())
+            return 0;
+
+        ExecutorService executor=Executors.newFixedThreadPool(Math.min(threads,versionFiles.size()));
         try {
-            //使用Jsoup解析这些字符串
-            int trsI=0;
-            Elements tables = Jsoup.parse(htmlString).select("table");
-            for(Element tableElement:tables){
-                Elements trs=tableElement.select("tr");
-                for(Element trElement:trs){
-                    if(trsI<3){trsI++;continue;}
-                    for(Element tdElement:trElement.select("td")) {
-                        if(tdElement.text().equals(""))continue;
-                        //判断正则判断是否为数字
-                        if(Pattern.matches(numRegular,tdElement.text())){
-                            //是数字，则为行政代码
-                            administrativeCode=tdElement.text();
-                        }else{
-                            //不是则为行政名
-                            if(administrativeCode.equals(""))continue;
-
-                            if(codeMap.containsKey(administrativeCode)) {
-                                codeDateMap = codeMap.get(administrativeCode);
-                            }else {
-                                codeDateMap = new HashMap<>();
-                            }
-                            codeDateMap.put(String.valueOf(version),tdElement.text());
-                            codeMap.put(administrativeCode,codeDateMap);
-
-                            administrativeCode="";
-                            codeDateMap=null;
-                        }
-                    }
-                }
+            Map<Integer,List<Future<Map<String,String>>>> futures=new TreeMap<>();
+            for(Map.Entry<Integer,List<File>> entry:versionFiles.entrySet()){
+                List<Future<Map<String,String>>> list=new ArrayList<>();
+                for(final File file:entry.getValue())
+                    list.add(executor.submit(() -> parse(file)));
+                futures.put(entry.getKey(),list);
+            }
+            for(Map.Entry<Integer,List<Future<Map<String,String>>>> entry:futures.entrySet()){
+                for(Future<Map<String,String>> future:entry.getValue())
+                    put(codeMap,entry.getKey(),get(future));
             }
-        }catch(NumberFormatException e){
-            throw new TextCannotUnableAnalysisException("内容无法解析"+e.getMessage());
+        }finally {
+            executor.shutdownNow();
         }
 
         if(codeMap.size()<=0){
             throw new GetInfoException("获取信息失败！");
         }
+        write(CodeFile.compact(codeMap),path);
+        return versionFiles.size();
+    }
+
+    /**
+     * 解析html文件中的行政代码，按流读取，换行符与按行读取后拼接时相同被忽略
+     * @param file html文件
+     * @return Map 行政代码 -> 名称
+     * @throws IOException
+     */
+    private Map<String,String> parse(File file) throws IOException {
+        return parse(new HtmlTableReader(new InputStreamReader(new FileInputStream(file),StandardCharsets.UTF_8),true));
+    }
+
+    /**
+     * 解析html中的行政代码：跳过所有表格的前3行，每个数字单元格为行政代码，之后第一个不是数字的单元格为名称
+     * @param tableReader html表格
+     * @return Map 行政代码 -> 名称
+     * @throws IOException
+     */
+    private Map<String,String> parse(HtmlTableReader tableReader) throws IOException {
+        Map<String,String> nameMap=new HashMap<>();
+        String administrativeCode = "";
+        try {
+            String text;
+            while((text=tableReader.nextCell())!=null){
+                if(tableReader.getRow()<=3)continue;
+                if(text.equals(""))continue;
+                if(isNumber(text)){
+                    //是数字，则为行政代码
+                    administrativeCode=text;
+                }else{
+                    //不是则为行政名
+                    if(administrativeCode.equals(""))continue;
+
+                    nameMap.put(administrativeCode,text);
+                    administrativeCode="";
+                }
+            }
+        }finally {
+            tableReader.close();
+        }
+        return nameMap;
+    }
+
+    /**
+     * 判断是否为数字，numRegular为默认值时直接判断字符
+     * @param text 单元格的文本
+     * @return bool
+     */
+    private boolean isNumber(String text){
+        if(numPattern!=null)
+            return numPattern.matcher(text).matches();
+
+        //与 -?[1-9]\d* 相同
+        int i=text.startsWith("-")?1:0;
+        if(i>=text.length()||text.charAt(i)<'1'||text.charAt(i)>'9')
+            return false;
+        for(i++;i<text.length();i++){
+            char c=text.charAt(i);
+            if(c<'0'||c>'9')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 把一个版本的数据放入已有的数据
+     */
+    private static void put(Map<String,Map<String,String>> codeMap,int version,Map<String,String> nameMap){
+        String versionString=String.valueOf(version);
+        for(Map.Entry<String,String> entry:nameMap.entrySet()){
+            Map<String,String> codeDateMap=codeMap.get(entry.getKey());
+            if(codeDateMap==null){
+                codeDateMap=new HashMap<>();
+                codeMap.put(entry.getKey(),codeDateMap);
+            }
+            codeDateMap.put(versionString,entry.getValue());
+        }
+    }
+
+    private static Map<String,String> get(Future<Map<String,String>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("解析被中断！");
+        } catch (ExecutionException e) {
+            if(e.getCause() instanceof IOException)
+                throw (IOException)e.getCause();
+            if(e.getCause() instanceof RuntimeException)
+                throw (RuntimeException)e.getCause();
+            throw new TextCannotUnableAnalysisException("内容无法解析"+e.getCause());
+        }
+    }
+
+    /**
+     * 读取某个目录下已有的数据
+     * @param path 存储地址
+     * @return Map 行政代码 -> (版本 -> 名称)，没有数据时为空的Map
+     * @throws IOException
+     */
+    private Map<String,Map<String,String>> read(String path) throws IOException {
+        File pathFile=new File(path+"/administrative-code-data/code.json");
+        if(!pathFile.exists())
+            return new HashMap<>();
+        //两种格式都展开为原来的格式
+        return CodeFile.parse(getFileText(pathFile)).expand();
+    }
+
+    /**
+     * 写出压缩格式的code.json，需要时同时写出code.bin，这个目录已经加载过时立即重新加载
+     * @param codeFile 压缩后的数据
+     * @param path 存储地址
+     * @throws IOException
+     */
+    private void write(CodeFile codeFile,String path) throws IOException {
+        //一些变量
+        String customPath=path;
+        File administrativeCodeDataFile=null;
+        String pathData=path+"/administrative-code-data/";
+        path+="/administrative-code-data/code.json";
+        File pathFile=new File(path);
+        Writer codeMapWriter=null;
 
         try {
             //判断administrative-code-data文件夹是否存在
@@ -125,13 +306,63 @@ public class Collect {
             }
 
             codeMapWriter=new BufferedWriter (new OutputStreamWriter (new FileOutputStream (path,false), StandardCharsets.UTF_8));
-            codeMapWriter.write(JSON.toJSONString(codeMap));
+            codeMapWriter.write(codeFile.toJSONString());
         }finally{
             if(codeMapWriter!=null)
                 codeMapWriter.close();
         }
 
+        if(this.snapshot)
+            RegionSnapshot.write(new RegionTable.Builder().putAll(codeFile).build(),new File(pathData+RegionSnapshot.FILE_NAME),pathFile);
+        //验证时使用新的数据与位图
+        RegionIndex.refresh(customPath);
+    }
+
+    /**
+     * 为某个目录下已有的code.json生成二进制快照code.bin，IDValidation会直接映射快照而不再解析json
+     * @param path 存储地址，administrative-code-data目录的上级目录
+     * @throws IOException
+     */
+    public void snapshot(String path) throws IOException {
+        String pathData=path+"/administrative-code-data/";
+        File pathFile=new File(pathData+"code.json");
+        if(!pathFile.exists())
+            throw new GetInfoException("找不到"+pathFile+"！");
+
+        RegionSnapshot.write(new RegionTable.Builder().putAll(CodeFile.parse(getFileText(pathFile))).build(),new File(pathData+RegionSnapshot.FILE_NAME),pathFile);
+
+    }
+
+    /**
+     * 把某个目录下已有的code.json改写为压缩格式(见{@link CodeFile})，只保存名称变化的版本范围，数据与查找结果都不变。
+     * Collect添加数据时已经写出压缩格式，只有以前生成的文件需要改写
+     * @param path 存储地址，administrative-code-data目录的上级目录
+     * @throws IOException
+     */
+    public void compact(String path) throws IOException {
+        File pathFile=new File(path+"/administrative-code-data/code.json");
+        if(!pathFile.exists())
+            throw new GetInfoException("找不到"+pathFile+"！");
+
+        write(CodeFile.compact(read(path)),path);
+    }
+
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    public void setSnapshot(boolean snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
 
+    public void setThreads(int threads) {
+        if(threads<=0)
+            throw new IllegalArgumentException("threads必须大于0！");
+        this.threads = threads;
     }
 
     public String getNumRegular() {
@@ -140,13 +371,14 @@ public class Collect {
 
     public void setNumRegular(String numRegular) {
         this.numRegular = numRegular;
+        this.numPattern = DEFAULT_NUM_REGULAR.equals(numRegular)?null:Pattern.compile(numRegular);
     }
 
     private String getFileText(File file) throws IOException{
         BufferedReader reader = null;
         StringBuilder sbf = new StringBuilder();
         try {
-            reader = new BufferedReader(new FileReader(file));
+            reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8));
             String tempStr;
             while ((tempStr = reader.readLine()) != null) {
                 sbf.append(tempStr);
@@ -0,0 +1,384 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.FileValidationReport;
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.exception.IDValidationException;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+/**
+ * 流式验证按行存储(或CSV)的身份证号码文件
+ * <p>
+ * 通过FileChannel分块读取，每读满一块就交给线程池验证，当前线程按顺序写出已经完成的块，
+ * 同时在验证中的块数量有上限，所以无论文件多大占用的内存都是固定的。
+ * <p>
+ * 空行(只有空白)跳过，计入{@link FileValidationReport#getSkipped()}；没有身份证号码所在的列、这一列为空
+ * 或者一行超过{@value #MAX_LINE_LENGTH}字节时不丢弃，号码按空字符串计入LENGTH。
+ * <p>
+ * 输出文件每行为：行号,身份证号码,错误代码。也可以按块得到按列保存的结果{@link ValidationColumns}，写到按列存储的文件中。
+ */
+public class FileValidator {
+
+    /** 读取文件的缓冲区大小 */
+    private static final int BUFFER_SIZE=1<<16;
+    /** 一行的最大字节数，超过的部分不保存，这一行计入LENGTH */
+    static final int MAX_LINE_LENGTH=1<<16;
+
+    /** 实际进行验证的对象 */
+    private final IDValidator validator;
+    /** CSV的分隔符 */
+    private char separator=',';
+    /** 身份证号码所在的列，从0开始 */
+    private int column=0;
+    /** 跳过开头的行数，如表头 */
+    private int skipLines=0;
+    /** 是否只输出验证失败的行 */
+    private boolean failuresOnly=false;
+    /** 验证的线程数 */
+    private int threads=Runtime.getRuntime().availableProcessors();
+    /** 每块的行数 */
+    private int chunkSize=4096;
+
+    public FileValidator(IDValidator validator){
+        if(validator==null)
+            throw new IllegalArgumentException("validator不能为null！");
+        this.validator=validator;
+    }
+
+    /**
+     * 验证文件，只统计不输出
+     * @param input 要验证的文件
+     * @return FileValidationReport 统计结果
+     * @throws IOException
+     */
+    public FileValidationReport validate(File input) throws IOException {
+        return this.validate(input,null);
+    }
+
+    /**
+     * 验证文件
+     * @param input 要验证的文件
+     * @param output 输出的文件，为null时只统计不输出
+     * @return FileValidationReport 统计结果
+     * @throws IOException
+     */
+    public FileValidationReport validate(File input,File output) throws IOException {
+        return validate(input,output,null);
+    }
+
+    /**
+     * 验证文件，每块的结果按列交给consumer，不为每行创建对象
+     * <p>
+     * 按文件中的顺序在当前线程调用consumer，每块一次(包括失败的行)，调用后不再使用这一块，consumer可以保留。
+     * 这种方式不使用验证对象的缓存。
+     * @param input 要验证的文件
+     * @param consumer 每块按列保存的结果
+     * @return FileValidationReport 统计结果
+     * @throws IOException
+     */
+    public FileValidationReport validateColumns(File input,Consumer<? super ValidationColumns> consumer) throws IOException {
+        if(consumer==null)
+            throw new IllegalArgumentException("consumer不能为null！");
+        return validate(input,null,consumer);
+    }
+
+    private FileValidationReport validate(File input,File output,Consumer<? super ValidationColumns> consumer) throws IOException {
+        long start=System.currentTimeMillis();
+        Job job=new Job(consumer!=null?validator.getRegionIndex().whole():validator.getRegionIndex(),consumer);
+        try(FileChannel channel=FileChannel.open(input.toPath(),StandardOpenOption.READ)) {
+            if(output!=null)
+                job.writer=new BufferedWriter(new OutputStreamWriter(new FileOutputStream(output),StandardCharsets.UTF_8),BUFFER_SIZE);
+
+            ByteBuffer buffer=ByteBuffer.allocate(BUFFER_SIZE);
+            byte[] bytes=buffer.array();
+            byte[] line=new byte[256];
+            int lineLength=0;
+            boolean overflow=false;
+            int read;
+            while((read=channel.read(buffer))>=0){
+                for(int i=0;i<read;i++){
+                    byte b=bytes[i];
+                    if(b!='\n'){
+                        if(lineLength==MAX_LINE_LENGTH){
+                            overflow=true;
+                            continue;
+                        }
+                        if(lineLength==line.length)
+                            line=Arrays.copyOf(line,Math.min(line.length*2,MAX_LINE_LENGTH));
+                        line[lineLength++]=b;
+                        continue;
+                    }
+                    job.line(line,lineLength,overflow);
+                    lineLength=0;
+                    overflow=false;
+                }
+                buffer.clear();
+            }
+            //最后一行没有换行符
+            if(lineLength>0)
+                job.line(line,lineLength,overflow);
+            job.finish();
+        }finally {
+            job.close();
+        }
+        return new FileValidationReport(job.counts,job.skipped,System.currentTimeMillis()-start);
+    }
+
+    /**
+     * 是否为空行，只有空白(ASCII的控制字符与空格)
+     */
+    private static boolean isBlank(byte[] line,int length){
+        for(int i=0;i<length;i++){
+            if((line[i]&0xFF)>' ')
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * 取出一行中身份证号码所在的列，去掉首尾的空白与引号。
+     * 比较时按无符号的字节，UTF-8的多字节字符不会被当作空白
+     * @param line 行
+     * @param length 行的长度
+     * @return String 没有这一列时为空字符串
+     */
+    private String getColumn(byte[] line,int length){
+        int from=0,current=0;
+        while(current<column){
+            while(from<length&&line[from]!=separator)
+                from++;
+            if(from>=length)
+                return "";
+            from++;
+            current++;
+        }
+        int to=from;
+        while(to<length&&line[to]!=separator)
+            to++;
+
+        while(from<to&&((line[from]&0xFF)<=' '||line[from]=='"'))
+            from++;
+        while(to>from&&((line[to-1]&0xFF)<=' '||line[to-1]=='"'))
+            to--;
+        if(from==to)
+            return "";
+        return new String(line,from,to-from,StandardCharsets.UTF_8);
+    }
+
+    public char getSeparator() {
+        return separator;
+    }
+
+    /**
+     * 设置CSV的分隔符，按字节比较，所以只能是ASCII字符
+     * @param separator 分隔符，如 ',' 或者 '\t'
+     * @throws IllegalArgumentException 不是ASCII字符(如全角的'，')
+     */
+    public void setSeparator(char separator) {
+        if(separator>0x7F)
+            throw new IllegalArgumentException("separator必须为ASCII字符！");
+        this.separator = separator;
+    }
+
+    public int getColumn() {
+        return column;
+    }
+
+    public void setColumn(int column) {
+        this.column = column;
+    }
+
+    public int getSkipLines() {
+        return skipLines;
+    }
+
+    public void setSkipLines(int skipLines) {
+        this.skipLines = skipLines;
+    }
+
+    public boolean isFailuresOnly() {
+        return failuresOnly;
+    }
+
+    public void setFailuresOnly(boolean failuresOnly) {
+        this.failuresOnly = failuresOnly;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(int threads) {
+        if(threads<=0)
+            throw new IllegalArgumentException("threads必须大于0！");
+        this.threads = threads;
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public void setChunkSize(int chunkSize) {
+        if(chunkSize<=0)
+            throw new IllegalArgumentException("chunkSize必须大于0！");
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * 一次文件验证的状态：当前正在读取的块、验证中的块与统计结果
+     */
+    private final class Job {
+
+        private final RegionIndex index;
+        /** 按列输出时每块的结果，为null时按行验证 */
+        private final Consumer<? super ValidationColumns> consumer;
+        private final ExecutorService executor=Executors.newFixedThreadPool(threads);
+        /** 验证中的块，按读取的顺序排列 */
+        private final Deque<Future<Chunk>> pending=new ArrayDeque<>();
+        /** 同时验证中的块的上限 */
+        private final int maxPending=threads*2;
+        /** 每种错误代码的数量 */
+        private final long[] counts=new long[ErrorCode.values().length];
+        /** 跳过的空行数 */
+        private long skipped=0;
+        private Writer writer;
+        private Chunk chunk=new Chunk(chunkSize);
+        private long lineNumber=0;
+
+        Job(RegionIndex index,Consumer<? super ValidationColumns> consumer){
+            this.index=index;
+            this.consumer=consumer;
+        }
+
+        /**
+         * 读取到一行
+         * @param overflow 是否超过了最大长度，超过时号码为空字符串，验证结果为LENGTH
+         */
+        void line(byte[] line,int length,boolean overflow) throws IOException {
+            lineNumber++;
+            if(lineNumber<=skipLines)
+                return;
+            if(!overflow&&isBlank(line,length)){
+                skipped++;
+                return;
+            }
+            String id=overflow?"":getColumn(line,length);
+
+            chunk.add(lineNumber,id);
+            if(chunk.isFull()){
+                submit();
+                //验证中的块太多时先等最早的一块完成，读取也随之暂停
+                if(pending.size()>=maxPending)
+                    write(pending.removeFirst());
+            }
+        }
+
+        /**
+         * 读取完成，等待所有的块验证完成
+         */
+        void finish() throws IOException {
+            if(chunk.size>0)
+                submit();
+            while(!pending.isEmpty())
+                write(pending.removeFirst());
+        }
+
+        void close() throws IOException {
+            executor.shutdownNow();
+            if(writer!=null)
+                writer.close();
+        }
+
+        private void submit(){
+            final Chunk chunk=this.chunk;
+            if(consumer!=null){
+                final ValidationColumns columns=new ValidationColumns(chunk.ids,chunk.lineNumbers,chunk.size,index.getTable().namePool());
+                chunk.columns=columns;
+                pending.addLast(executor.submit(() -> {
+                    for(int i=0;i<chunk.size;i++)
+                        validator.validate(chunk.ids[i],index,columns,i);
+                    return chunk;
+                }));
+            }else{
+                chunk.results=new ValidationResult[chunk.size];
+                pending.addLast(executor.submit(() -> {
+                    for(int i=0;i<chunk.size;i++)
+                        chunk.results[i]=validator.validate(chunk.ids[i],index);
+                    return chunk;
+                }));
+            }
+            this.chunk=new Chunk(chunkSize);
+        }
+
+        /**
+         * 等待一块验证完成后统计并输出
+         */
+        private void write(Future<Chunk> future) throws IOException {
+            Chunk chunk;
+            try {
+                chunk=future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("验证被中断！");
+            } catch (ExecutionException e) {
+                if(e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException)e.getCause();
+                throw new IDValidationException("验证失败！"+e.getCause());
+            }
+
+            for(int i=0;i<chunk.size;i++){
+                ErrorCode errorCode=chunk.columns!=null?chunk.columns.errorCode(i):chunk.results[i].getErrorCode();
+                counts[errorCode.ordinal()]++;
+                if(writer==null||failuresOnly&&errorCode==ErrorCode.SUCCESS)
+                    continue;
+                writer.write(Long.toString(chunk.lineNumbers[i]));
+                writer.write(',');
+                writer.write(chunk.ids[i]);
+                writer.write(',');
+                writer.write(errorCode.name());
+                writer.write('\n');
+            }
+            if(consumer!=null)
+                consumer.accept(chunk.columns);
+        }
+    }
+
+    /**
+     * 一块要验证的行
+     */
+    private static final class Chunk {
+
+        private final long[] lineNumbers;
+        private final String[] ids;
+        /** 按行验证的结果 */
+        private ValidationResult[] results;
+        /** 按列验证的结果 */
+        private ValidationColumns columns;
+        private int size;
+
+        Chunk(int capacity){
+            this.lineNumbers=new long[capacity];
+            this.ids=new String[capacity];
+        }
+
+        void add(long lineNumber,String id){
+            lineNumbers[size]=lineNumber;
+            ids[size]=id;
+            size++;
+        }
+
+        boolean isFull(){
+            return size==ids.length;
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.apa70.idvalidation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * 流式读取html中表格的单元格
+ * <p>
+ * 一边读取一边解析，不创建DOM，占用的内存只有读取的缓冲区与当前的单元格。
+ * 只读取table中tr下的td，单元格的文本与jsoup的text()相同：解码常用的字符实体，连续的空白(包括&amp;nbsp;)合并为一个空格并去掉首尾的空白。
+ * 省略了结束标签的td与tr(如&lt;td&gt;a&lt;td&gt;b)遇到下一个td、tr或者表格结束时结束。
+ */
+final class HtmlTableReader implements Closeable {
+
+    private static final int BUFFER_SIZE=1<<13;
+
+    private final Reader reader;
+    /** 是否忽略换行符，与按行读取后直接拼接的结果相同 */
+    private final boolean ignoreLineBreaks;
+    private final char[] buffer=new char[BUFFER_SIZE];
+    private int position=0;
+    private int limit=0;
+
+    /** 当前所在table的层数 */
+    private int tableDepth=0;
+    /** 读取到的tr的数量，包括所有的表格 */
+    private int row=0;
+    /** 当前是否在tr中 */
+    private boolean inRow=false;
+    /** 当前是否在td中 */
+    private boolean inCell=false;
+    /** 当前单元格所在的行 */
+    private int cellRow=0;
+    /** 当前单元格的文本 */
+    private final StringBuilder cell=new StringBuilder();
+    /** 当前单元格的文本最后是否为空白 */
+    private boolean pendingSpace=false;
+    /** 读取标签名的缓冲区 */
+    private final StringBuilder tagName=new StringBuilder();
+
+    HtmlTableReader(Reader reader){
+        this(reader,false);
+    }
+
+    /**
+     * @param reader html
+     * @param ignoreLineBreaks 是否忽略换行符，与按行读取后直接拼接的结果相同
+     */
+    HtmlTableReader(Reader reader,boolean ignoreLineBreaks){
+        this.reader=reader;
+        this.ignoreLineBreaks=ignoreLineBreaks;
+    }
+
+    /**
+     * 读取下一个单元格
+     * @return String 单元格的文本，已经读取完时为null
+     * @throws IOException
+     */
+    String nextCell() throws IOException {
+        int c;
+        while((c=read())>=0){
+            if(c=='<'){
+                String cellText=tag();
+                if(cellText!=null)
+                    return cellText;
+            }else if(inCell){
+                if(c=='&')
+                    entity();
+                else
+                    append((char)c);
+            }
+        }
+        //文件结束时没有结束的单元格
+        return inCell?endCell():null;
+    }
+
+    /**
+     * 最后读取的单元格所在的行是所有表格中的第几行，从1开始
+     * @return int
+     */
+    int getRow(){
+        return cellRow;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 读取一个标签，'&lt;'已经读取
+     * @return String 标签结束了一个单元格时为单元格的文本，否则为null
+     */
+    private String tag() throws IOException {
+        int c=read();
+        if(c=='!'){
+            if(read()=='-'&&read()=='-')
+                skipComment();
+            else
+                skipTo('>');
+            return null;
+        }
+        if(c=='?'){
+            skipTo('>');
+            return null;
+        }
+        boolean closing=c=='/';
+        if(closing)
+            c=read();
+        if(!isLetter(c)){
+            //不是标签，作为文本
+            if(inCell){
+                append('<');
+                if(closing)
+                    append('/');
+                if(c>=0)
+                    append((char)c);
+            }
+            return null;
+        }
+
+        tagName.setLength(0);
+        while(isLetter(c)||c>='0'&&c<='9'){
+            tagName.append(Character.toLowerCase((char)c));
+            c=read();
+        }
+        if(c!='>')
+            skipAttributes();
+        String name=tagName.toString();
+
+        String cellText=null;
+        switch (name){
+            case "table":
+                if(inCell)
+                    cellText=endCell();
+                if(closing){
+                    if(tableDepth>0)
+                        tableDepth--;
+                    inRow=false;
+                }else{
+                    tableDepth++;
+                }
+                break;
+            case "tr":
+                if(inCell)
+                    cellText=endCell();
+                if(tableDepth>0){
+                    if(!closing)
+                        row++;
+                    inRow=!closing;
+                }
+                break;
+            case "td":
+            case "th":
+                if(inCell)
+                    cellText=endCell();
+                //与select("td")相同，th的内容不读取
+                if(!closing&&inRow&&name.equals("td"))
+                    beginCell();
+                break;
+            case "script":
+            case "style":
+                if(!closing)
+                    skipRawText(name);
+                break;
+            case "br":
+            case "p":
+            case "div":
+            case "li":
+                //块级元素与换行在text()中为空白
+                if(inCell)
+                    pendingSpace=cell.length()>0;
+                break;
+            default:
+                break;
+        }
+        return cellText;
+    }
+
+    private void beginCell(){
+        inCell=true;
+        cellRow=row;
+        cell.setLength(0);
+        pendingSpace=false;
+    }
+
+    private String endCell(){
+        inCell=false;
+        return cell.toString();
+    }
+
+    /**
+     * 添加单元格的文本，合并连续的空白并去掉开头的空白，结尾的空白在遇到下一个字符时才添加
+     */
+    private void append(char c){
+        if(isWhitespace(c)){
+            pendingSpace=cell.length()>0;
+            return;
+        }
+        if(pendingSpace){
+            cell.append(' ');
+            pendingSpace=false;
+        }
+        cell.append(c);
+    }
+
+    /**
+     * 解码字符实体并添加到单元格，'&amp;'已经读取，无法解码时原样添加
+     */
+    private void entity() throws IOException {
+        StringBuilder name=new StringBuilder(8);
+        int c;
+        while(name.length()<10&&(c=peek())>=0&&(isLetter(c)||c>='0'&&c<='9'||c=='#')){
+            name.append((char)c);
+            position++;
+        }
+        int decoded=decode(name.toString());
+        if(decoded<0){
+            append('&');
+            for(int i=0;i<name.length();i++)
+                append(name.charAt(i));
+            return;
+        }
+        if(peek()==';')
+            position++;
+        append((char)decoded);
+    }
+
+    private static int decode(String name){
+        switch (name){
+            case "nbsp":
+                return '\u00a0';
+            case "amp":
+                return '&';
+            case "lt":
+                return '<';
+            case "gt":
+                return '>';
+            case "quot":
+                return '"';
+            case "apos":
+                return '\'';
+            default:
+                break;
+        }
+        if(name.length()>1&&name.charAt(0)=='#'){
+            try {
+                int code=name.charAt(1)=='x'||name.charAt(1)=='X'
+                        ?Integer.parseInt(name.substring(2),16):Integer.parseInt(name.substring(1));
+                return code>0&&code<=0xFFFF?code:-1;
+            }catch (NumberFormatException e){
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private void skipComment() throws IOException {
+        int dashes=0,c;
+        while((c=read())>=0){
+            if(c=='>'&&dashes>=2)
+                return;
+            dashes=c=='-'?dashes+1:0;
+        }
+    }
+
+    private void skipAttributes() throws IOException {
+        int quote=0,c;
+        while((c=read())>=0){
+            if(quote!=0){
+                if(c==quote)
+                    quote=0;
+            }else if(c=='"'||c=='\''){
+                quote=c;
+            }else if(c=='>'){
+                return;
+            }
+        }
+    }
+
+    private void skipTo(char end) throws IOException {
+        int c;
+        while((c=read())>=0&&c!=end){
+        }
+    }
+
+    /**
+     * 跳过script与style的内容，直到结束标签
+     */
+    private void skipRawText(String name) throws IOException {
+        int c;
+        while((c=read())>=0){
+            if(c!='<'||peek()!='/')
+                continue;
+            position++;
+            int matched=0;
+            while(matched<name.length()&&(c=peek())>=0&&Character.toLowerCase((char)c)==name.charAt(matched)){
+                matched++;
+                position++;
+            }
+            if(matched==name.length()){
+                skipTo('>');
+                return;
+            }
+        }
+    }
+
+    private int read() throws IOException {
+        if(position==limit&&!fill())
+            return -1;
+        return buffer[position++];
+    }
+
+    private int peek() throws IOException {
+        if(position==limit&&!fill())
+            return -1;
+        return buffer[position];
+    }
+
+    private boolean fill() throws IOException {
+        int read;
+        do {
+            read=reader.read(buffer,0,buffer.length);
+            if(read<0)
+                return false;
+            if(ignoreLineBreaks){
+                int length=0;
+                for(int i=0;i<read;i++){
+                    if(buffer[i]!='\n'&&buffer[i]!='\r')
+                        buffer[length++]=buffer[i];
+                }
+                read=length;
+            }
+        }while(read==0);
+        position=0;
+        limit=read;
+        return true;
+    }
+
+    private static boolean isLetter(int c){
+        return c>='a'&&c<='z'||c>='A'&&c<='Z';
+    }
+
+    /**
+     * 与jsoup的StringUtil.isActuallyWhitespace相同
+     */
+    private static boolean isWhitespace(char c){
+        return c==' '||c=='\t'||c=='\n'||c=='\f'||c=='\r'||c=='\u00a0';
+    }
+}
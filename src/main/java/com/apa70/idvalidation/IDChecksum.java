@@ -0,0 +1,68 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+
+/**
+ * 身份证号码长度、格式与第18位的效验
+ * <p>
+ * 直接按字符计算，不创建任何对象。
+ */
+final class IDChecksum {
+
+    /** 身份证号码的长度 */
+    static final int LENGTH=18;
+    /** 身份证前17位乘的系数 */
+    static final int[] ID_WEIGHT={7,9,10,5,8,4,2,1,6,3,7,9,10,5,8,4,2};
+    /** 余数对应的第18位 */
+    static final char[] ID_REMAINDER={'1','0','X','9','8','7','6','5','4','3','2'};
+
+    private IDChecksum(){
+    }
+
+    /**
+     * 效验长度、前17位是否为数字以及第18位
+     * @param id 身份证号码
+     * @return ErrorCode 通过为SUCCESS，否则为LENGTH、FORMAT或VERIFY
+     */
+    static ErrorCode check(CharSequence id){
+        if(id==null||id.length()!=LENGTH)
+            return ErrorCode.LENGTH;
+
+        int idVerify=0;
+        for(int i=0;i<17;i++){
+            int digit=id.charAt(i)-'0';
+            if(digit<0||digit>9)
+                return ErrorCode.FORMAT;
+            idVerify+=digit*ID_WEIGHT[i];
+        }
+
+        char id18=id.charAt(17);
+        if(id18=='x')
+            id18='X';
+        return id18==ID_REMAINDER[idVerify%11]?ErrorCode.SUCCESS:ErrorCode.VERIFY;
+    }
+
+    /**
+     * 计算第18位
+     * @param id 至少17位数字
+     * @return char 第18位
+     */
+    static char checkDigit(CharSequence id){
+        int idVerify=0;
+        for(int i=0;i<17;i++)
+            idVerify+=(id.charAt(i)-'0')*ID_WEIGHT[i];
+        return ID_REMAINDER[idVerify%11];
+    }
+
+    /**
+     * 计算第18位
+     * @param id 至少17位数字
+     * @return char 第18位
+     */
+    static char checkDigit(char[] id){
+        int idVerify=0;
+        for(int i=0;i<17;i++)
+            idVerify+=(id[i]-'0')*ID_WEIGHT[i];
+        return ID_REMAINDER[idVerify%11];
+    }
+}
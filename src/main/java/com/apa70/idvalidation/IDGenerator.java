@@ -0,0 +1,349 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * 生成身份证号码，用于压力测试
+ * <p>
+ * 生成的号码使用出生年份能够验证成功的县级代码、真实存在的日期与正确的第18位，
+ * 也可以按错误代码生成验证失败的号码：
+ * <ul>
+ *     <li>LENGTH 截断或者多出一两位</li>
+ *     <li>FORMAT 前17位中有一位不是数字，或者日期不存在、早于1800年、晚于今天</li>
+ *     <li>VERIFY 第18位不正确</li>
+ *     <li>REGION 前六位在出生年份没有对应的省市区</li>
+ * </ul>
+ * 相同的种子生成相同的号码。出生年份默认每年相同，也可以传入每年的权重，按真实请求的年龄分布生成。
+ * <p>
+ * 创建后不可修改，可以在多线程下共用，每个线程使用自己的SplittableRandom。
+ * 生成到char[]时不创建任何对象：
+ * <pre>
+ * IDGenerator generator=new IDGenerator(RegionIndex.get(null));
+ * String[] ids=generator.generate(ErrorCode.SUCCESS,1000000,42);
+ * </pre>
+ */
+public final class IDGenerator {
+
+    /** 默认最早的出生年份 */
+    public static final int DEFAULT_FROM_YEAR=1940;
+    /** 生成的号码的最大长度，LENGTH时最多多出两位 */
+    public static final int MAX_LENGTH=IDChecksum.LENGTH+2;
+
+    /** 格式错误时替换的字符 */
+    private static final char[] NOT_DIGITS={'A','X','x','O','l','*','-',' '};
+
+    private final RegionIndex index;
+    /** 最早的出生年份 */
+    private final int fromYear;
+    /** 每个出生年份的累计权重，为null时每年相同 */
+    private final double[] cumulativeWeights;
+    /** 每个出生年份能够验证成功的县级代码 */
+    private final int[][] counties;
+
+    /**
+     * 出生年份为{@value #DEFAULT_FROM_YEAR}年到今年，每年相同
+     * @param index 地区代码索引
+     */
+    public IDGenerator(RegionIndex index){
+        this(index,DEFAULT_FROM_YEAR,LocalDate.now().getYear());
+    }
+
+    /**
+     * 出生年份每年相同
+     * @param index 地区代码索引
+     * @param fromYear 最早的出生年份
+     * @param toYear 最晚的出生年份，不能晚于今年
+     */
+    public IDGenerator(RegionIndex index,int fromYear,int toYear){
+        this(index,fromYear,toYear-fromYear+1,null);
+    }
+
+    /**
+     * 按权重生成出生年份
+     * @param index 地区代码索引
+     * @param fromYear 最早的出生年份
+     * @param yearWeights 每个出生年份的权重，第i个为fromYear+i年，最后的年份不能晚于今年
+     */
+    public IDGenerator(RegionIndex index,int fromYear,double[] yearWeights){
+        this(index,fromYear,yearWeights==null?0:yearWeights.length,yearWeights);
+    }
+
+    private IDGenerator(RegionIndex index,int fromYear,int years,double[] yearWeights){
+        if(index==null)
+            throw new IllegalArgumentException("index不能为null！");
+        if(fromYear<BirthDate.MIN_YEAR)
+            throw new IllegalArgumentException("fromYear不能早于"+BirthDate.MIN_YEAR+"！");
+        if(years<=0)
+            throw new IllegalArgumentException("出生年份的数量必须大于0！");
+        if(fromYear+years-1>BirthDate.today()/10000)
+            throw new IllegalArgumentException("出生年份不能晚于今年！");
+        this.index=index.whole();
+        this.fromYear=fromYear;
+        this.cumulativeWeights=yearWeights==null?null:cumulate(yearWeights);
+        //版本都是整年时每个月的结果相同，只需要查找一次
+        RegionTable table=this.index.getTable();
+        boolean monthly=false;
+        for(int entry=0;entry<table.entries()&&!monthly;entry++)
+            monthly=table.version(entry)%100!=0;
+        this.counties=new int[years][];
+        for(int i=0;i<years;i++){
+            counties[i]=counties(this.index,fromYear+i,monthly);
+            if(counties[i].length==0)
+                throw new IllegalArgumentException(fromYear+i+"年没有能够验证成功的地区代码！");
+        }
+    }
+
+    /**
+     * 生成一个验证成功的号码
+     * @param random 随机数
+     * @return String
+     */
+    public String next(SplittableRandom random){
+        return next(ErrorCode.SUCCESS,random);
+    }
+
+    /**
+     * 生成一个号码
+     * @param errorCode 验证的结果，SUCCESS为验证成功的号码
+     * @param random 随机数
+     * @return String
+     */
+    public String next(ErrorCode errorCode,SplittableRandom random){
+        char[] id=new char[MAX_LENGTH];
+        return new String(id,0,next(errorCode,random,id));
+    }
+
+    /**
+     * 生成一个号码到id中，不创建任何对象
+     * @param errorCode 验证的结果，SUCCESS为验证成功的号码
+     * @param random 随机数
+     * @param id 长度至少为{@value #MAX_LENGTH}
+     * @return int 号码的长度，只有LENGTH时不是18
+     */
+    public int next(ErrorCode errorCode,SplittableRandom random,char[] id){
+        if(errorCode==null)
+            throw new IllegalArgumentException("errorCode不能为null！");
+        int year=year(random);
+        int today=BirthDate.today();
+        int birthday;
+        do {
+            int month=1+random.nextInt(12);
+            birthday=year*10000+month*100+1+random.nextInt(BirthDate.daysOfMonth(year,month));
+        }while(birthday>today);
+
+        int[] codes=counties[year-fromYear];
+        int code=errorCode==ErrorCode.REGION?missingCode(birthday/100,random):codes[random.nextInt(codes.length)];
+        put(id,0,code,6);
+        put(id,6,birthday,8);
+        put(id,14,random.nextInt(1000),3);
+
+        switch (errorCode){
+            case LENGTH:
+                id[17]=IDChecksum.checkDigit(id);
+                //0到17位，或者多出一两位
+                int length=random.nextInt(IDChecksum.LENGTH+2);
+                if(length>=IDChecksum.LENGTH){
+                    length++;
+                    for(int i=IDChecksum.LENGTH;i<length;i++)
+                        id[i]=(char)('0'+random.nextInt(10));
+                }
+                return length;
+            case FORMAT:
+                if(random.nextBoolean()){
+                    id[random.nextInt(17)]=NOT_DIGITS[random.nextInt(NOT_DIGITS.length)];
+                    id[17]=IDChecksum.ID_REMAINDER[random.nextInt(IDChecksum.ID_REMAINDER.length)];
+                }else{
+                    invalidBirthday(id,today,random);
+                    id[17]=IDChecksum.checkDigit(id);
+                }
+                return IDChecksum.LENGTH;
+            case VERIFY:
+                int remainder=remainder(IDChecksum.checkDigit(id));
+                id[17]=IDChecksum.ID_REMAINDER[(remainder+1+random.nextInt(10))%11];
+                return IDChecksum.LENGTH;
+            default:
+                id[17]=IDChecksum.checkDigit(id);
+                return IDChecksum.LENGTH;
+        }
+    }
+
+    /**
+     * 批量生成
+     * @param errorCode 验证的结果，SUCCESS为验证成功的号码
+     * @param count 数量
+     * @param seed 种子
+     * @return String[]
+     */
+    public String[] generate(ErrorCode errorCode,int count,long seed){
+        SplittableRandom random=new SplittableRandom(seed);
+        char[] id=new char[MAX_LENGTH];
+        String[] ids=new String[count];
+        for(int i=0;i<count;i++)
+            ids[i]=new String(id,0,next(errorCode,random,id));
+        return ids;
+    }
+
+    /**
+     * 按比例批量生成各种结果的号码，如SUCCESS为0.95、VERIFY为0.05
+     * @param mix 每种验证结果的权重
+     * @param count 数量
+     * @param seed 种子
+     * @return String[] 顺序是随机的
+     */
+    public String[] generate(Map<ErrorCode,? extends Number> mix,int count,long seed){
+        ErrorCode[] errorCodes=ErrorCode.values();
+        double[] weights=new double[errorCodes.length];
+        for(Map.Entry<ErrorCode,? extends Number> entry:mix.entrySet())
+            weights[entry.getKey().ordinal()]=entry.getValue().doubleValue();
+        double[] cumulative=cumulate(weights);
+
+        SplittableRandom random=new SplittableRandom(seed);
+        char[] id=new char[MAX_LENGTH];
+        String[] ids=new String[count];
+        for(int i=0;i<count;i++){
+            ErrorCode errorCode=errorCodes[pick(cumulative,random)];
+            ids[i]=new String(id,0,next(errorCode,random,id));
+        }
+        return ids;
+    }
+
+    /**
+     * 批量生成每个18字节连续存放的号码，与{@link PackedIDChecker}的格式相同
+     * @param errorCode 验证的结果，不能为LENGTH
+     * @param count 数量
+     * @param seed 种子
+     * @return byte[] ASCII
+     */
+    public byte[] generatePacked(ErrorCode errorCode,int count,long seed){
+        if(errorCode==ErrorCode.LENGTH)
+            throw new IllegalArgumentException("定长存放的号码不能为LENGTH！");
+        SplittableRandom random=new SplittableRandom(seed);
+        char[] id=new char[MAX_LENGTH];
+        byte[] records=new byte[count*IDChecksum.LENGTH];
+        for(int i=0,offset=0;i<count;i++){
+            next(errorCode,random,id);
+            for(int j=0;j<IDChecksum.LENGTH;j++)
+                records[offset++]=(byte)id[j];
+        }
+        return records;
+    }
+
+    /**
+     * 随机的出生年份
+     */
+    private int year(SplittableRandom random){
+        if(cumulativeWeights==null)
+            return fromYear+random.nextInt(counties.length);
+        return fromYear+pick(cumulativeWeights,random);
+    }
+
+    /**
+     * 在出生年月没有对应省市区的代码
+     */
+    private int missingCode(int birthday,SplittableRandom random){
+        int code;
+        do {
+            code=100000+random.nextInt(900000);
+        }while(index.find(code,birthday)!=null);
+        return code;
+    }
+
+    /**
+     * 把出生日期改为不存在的日期、早于1800年或者晚于今天
+     */
+    private static void invalidBirthday(char[] id,int today,SplittableRandom random){
+        int year=(id[6]-'0')*1000+(id[7]-'0')*100+(id[8]-'0')*10+(id[9]-'0');
+        int month=(id[10]-'0')*10+(id[11]-'0');
+        switch (random.nextInt(4)){
+            case 0:
+                //月份为00或者13到19
+                int invalidMonth=random.nextInt(8);
+                put(id,10,invalidMonth==0?0:12+invalidMonth,2);
+                break;
+            case 1:
+                //日为00或者超过这个月的天数
+                int days=BirthDate.daysOfMonth(year,month);
+                put(id,12,random.nextBoolean()?0:days+1+random.nextInt(99-days),2);
+                break;
+            case 2:
+                put(id,6,random.nextInt(BirthDate.MIN_YEAR),4);
+                break;
+            default:
+                //今天之后
+                put(id,6,today/10000+1+random.nextInt(9999-today/10000),4);
+                break;
+        }
+    }
+
+    /**
+     * 出生年份能够验证成功的县级代码
+     * @param monthly 是否需要每个月都查找
+     */
+    private static int[] counties(RegionIndex index,int year,boolean monthly){
+        RegionTable table=index.getTable();
+        int[] codes=new int[table.size()];
+        int count=0;
+        for(int position=0;position<table.size();position++){
+            int code=table.code(position);
+            if(code%100==0)
+                continue;
+            boolean found=true;
+            for(int month=1;month<=(monthly?12:1)&&found;month++)
+                found=index.find(code,year*100+month)!=null;
+            if(found)
+                codes[count++]=code;
+        }
+        int[] result=new int[count];
+        System.arraycopy(codes,0,result,0,count);
+        return result;
+    }
+
+    private static double[] cumulate(double[] weights){
+        double[] cumulative=new double[weights.length];
+        double total=0;
+        for(int i=0;i<weights.length;i++){
+            if(!(weights[i]>=0)||Double.isInfinite(weights[i]))
+                throw new IllegalArgumentException("权重不能小于0！");
+            total+=weights[i];
+            cumulative[i]=total;
+        }
+        if(total<=0)
+            throw new IllegalArgumentException("权重的和必须大于0！");
+        return cumulative;
+    }
+
+    /**
+     * 按累计权重随机选择一个下标
+     */
+    private static int pick(double[] cumulative,SplittableRandom random){
+        double target=random.nextDouble()*cumulative[cumulative.length-1];
+        int low=0,high=cumulative.length-1;
+        while(low<high){
+            int middle=(low+high)>>>1;
+            if(cumulative[middle]<=target)
+                low=middle+1;
+            else
+                high=middle;
+        }
+        return low;
+    }
+
+    private static int remainder(char checkDigit){
+        for(int i=0;i<IDChecksum.ID_REMAINDER.length;i++){
+            if(IDChecksum.ID_REMAINDER[i]==checkDigit)
+                return i;
+        }
+        return -1;
+    }
+
+    private static void put(char[] id,int offset,int value,int length){
+        for(int i=offset+length-1;i>=offset;i--){
+            id[i]=(char)('0'+value%10);
+            value/=10;
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+import com.apa70.idvalidation.enums.Stage;
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.io.IOException;
+
+/**
+ * 无状态的身份证号码验证
+ * <p>
+ * 不保存任何验证结果，每次验证返回一个新的{@link ValidationResult}，可以作为单例在多线程下共用。
+ */
+public final class IDValidator {
+
+    /** 自定义的目录 */
+    private final String path;
+    /** 验证过程的监听，为null时不统计 */
+    private final ValidationListener listener;
+    /** 验证结果的缓存，为null时不缓存 */
+    private final ResultCache cache;
+
+    public IDValidator(){
+        this(null);
+    }
+
+    /**
+     * @param path 自定义的目录，为空时只使用自带的数据
+     */
+    public IDValidator(String path){
+        this(path,null);
+    }
+
+    /**
+     * @param path 自定义的目录，为空时只使用自带的数据
+     * @param listener 验证过程的监听，如{@link ValidationMetrics}，为null时不统计
+     */
+    public IDValidator(String path,ValidationListener listener){
+        this(path,listener,null);
+    }
+
+    /**
+     * @param path 自定义的目录，为空时只使用自带的数据
+     * @param listener 验证过程的监听，如{@link ValidationMetrics}，为null时不统计
+     * @param cache 验证结果的缓存，为null时不缓存，可以在使用同一个目录的多个IDValidator之间共用
+     */
+    public IDValidator(String path,ValidationListener listener,ResultCache cache){
+        this.path=path;
+        this.listener=listener;
+        this.cache=cache;
+    }
+
+    /**
+     * 验证方法
+     * @param id 身份证号码
+     * @return ValidationResult 验证结果
+     * @throws IndexFileException 读取索引文件失败
+     */
+    public ValidationResult validate(String id){
+        return validate(id,null);
+    }
+
+    /**
+     * 使用指定的索引验证，批量验证时整批共用同一个索引
+     * @param id 身份证号码
+     * @param index 索引，为null时使用共用的索引
+     * @return ValidationResult 验证结果
+     */
+    ValidationResult validate(String id,RegionIndex index){
+        if(cache!=null)
+            return validateWithCache(id,index);
+        return validateWithoutCache(id,index);
+    }
+
+    private ValidationResult validateWithoutCache(String id,RegionIndex index){
+        if(listener!=null)
+            return validateWithListener(id,index);
+
+        //对身份证效验
+        ErrorCode errorCode=IDChecksum.check(id);
+        if(errorCode!=ErrorCode.SUCCESS)
+            return checksumFail(id,errorCode);
+
+        //所有版本中都不存在的前6位在解析生日之前排除，按省懒加载时只加载所在的省
+        if(index==null)
+            index=getRegionIndex();
+        int code=code(id);
+        index=index.regions(code);
+        if(!index.mayContain(code))
+            return regionFail(id);
+
+        //生日
+        int birth=BirthDate.decode(id);
+        if(birth<0)
+            return birthFail(id);
+
+        //对前6位进行效验，只找到版本的下标，名称在需要时才从地区代码表中查找
+        int entry=index.findEntry(code,birth/100);
+        if(entry<0)
+            return regionFail(id);
+
+        return success(id,birth,code,index.getTable(),entry);
+    }
+
+    /**
+     * 与{@link #validate(String, RegionIndex)}相同，同时把每个阶段的耗时与结果通知监听。
+     * 分开写是为了没有监听时连System.nanoTime()也不调用
+     */
+    private ValidationResult validateWithListener(String id,RegionIndex index){
+        ValidationResult result;
+        long start=System.nanoTime();
+        ErrorCode errorCode=IDChecksum.check(id);
+        long end=System.nanoTime();
+        listener.onStage(Stage.CHECKSUM,end-start);
+        if(errorCode!=ErrorCode.SUCCESS){
+            result=checksumFail(id,errorCode);
+        }else{
+            start=end;
+            if(index==null)
+                index=getRegionIndex();
+            int code=code(id);
+            index=index.regions(code);
+            boolean mayContain=index.mayContain(code);
+            end=System.nanoTime();
+            //位图检查的时间总是计入REGION，通过时与之后的查找合计为一次
+            long regionNanos=end-start;
+            if(!mayContain){
+                listener.onStage(Stage.REGION,regionNanos);
+                result=regionFail(id);
+            }else{
+                start=end;
+                int birth=BirthDate.decode(id);
+                end=System.nanoTime();
+                listener.onStage(Stage.DATE,end-start);
+                if(birth<0){
+                    listener.onStage(Stage.REGION,regionNanos);
+                    result=birthFail(id);
+                }else{
+                    start=end;
+                    int entry=index.findEntry(code,birth/100);
+                    listener.onStage(Stage.REGION,regionNanos+System.nanoTime()-start);
+                    if(entry<0){
+                        result=regionFail(id);
+                    }else{
+                        RegionTable table=index.getTable();
+                        listener.onRegionVersion(birth/100,table.version(entry));
+                        result=success(id,birth,code,table,entry);
+                    }
+                }
+            }
+        }
+        listener.onValidate(result.getErrorCode());
+        return result;
+    }
+
+    /**
+     * 验证后写到columns的第row行，不创建任何对象，批量验证按列输出时使用。
+     * 不使用缓存，有监听时只通知验证结果与使用的版本
+     * @param id 身份证号码
+     * @param index 有全部数据的索引({@link RegionIndex#whole()})，省市区的下标都在它的名称池中
+     * @param columns 按列保存的结果
+     * @param row 行
+     */
+    void validate(String id,RegionIndex index,ValidationColumns columns,int row){
+        ErrorCode errorCode=IDChecksum.check(id);
+        if(errorCode==ErrorCode.SUCCESS){
+            int code=code(id);
+            int birth=index.mayContain(code)?BirthDate.decode(id):0;
+            int entry=birth>0?index.findEntry(code,birth/100):-1;
+            if(birth<0){
+                errorCode=ErrorCode.FORMAT;
+            }else if(entry<0){
+                errorCode=ErrorCode.REGION;
+            }else{
+                RegionTable table=index.getTable();
+                boolean woman=(id.charAt(16)-'0')%2==0;
+                columns.set(row,PackedResult.success(birth,woman,code,table.version(entry)),
+                        table.provinceIndex(entry),table.cityIndex(entry),table.nameIndex(entry));
+                if(listener!=null){
+                    listener.onRegionVersion(birth/100,table.version(entry));
+                    listener.onValidate(errorCode);
+                }
+                return;
+            }
+        }
+        columns.set(row,PackedResult.fail(errorCode),-1,-1,-1);
+        if(listener!=null)
+            listener.onValidate(errorCode);
+    }
+
+    /**
+     * 先查找缓存，没有时验证后放入缓存。
+     * 只缓存生日正确的号码：地区代码的结果与生日都不会随时间变化，而未来的生日过一段时间后会变为正确的
+     */
+    private ValidationResult validateWithCache(String id,RegionIndex index){
+        if(IDChecksum.check(id)!=ErrorCode.SUCCESS)
+            return validateWithoutCache(id,index);
+
+        if(index==null)
+            index=getRegionIndex();
+        index=index.regions(code(id));
+        long key=ResultCache.key(id);
+        ResultCache.Entry entry=cache.get(key,index);
+        if(entry!=null){
+            ValidationResult result=entry.getEntry()<0?regionFail(id):success(id,entry.getBirthday(),code(id),index.getTable(),entry.getEntry());
+            if(listener!=null)
+                listener.onValidate(result.getErrorCode());
+            return result;
+        }
+
+        ValidationResult result=validateWithoutCache(id,index);
+        if(result.isSuccess()){
+            //结果中不公开版本的下标，没有命中时再查找一次
+            cache.put(key,index,result.getBirthday(),index.findEntry(result.getCountyCode(),result.getBirthday()/100));
+        }else if(result.getErrorCode()==ErrorCode.REGION){
+            cache.put(key,index,0,-1);
+        }
+        return result;
+    }
+
+    private static ValidationResult checksumFail(String id,ErrorCode errorCode){
+        switch (errorCode){
+            case LENGTH:
+                return ValidationResult.fail(id,ErrorCode.LENGTH,"身份证号长度不正确！");
+            case FORMAT:
+                return ValidationResult.fail(id,ErrorCode.FORMAT,"身份证号格式不正确！");
+            default:
+                return ValidationResult.fail(id,ErrorCode.VERIFY,"身份证号效验失败");
+        }
+    }
+
+    private static ValidationResult birthFail(String id){
+        return ValidationResult.fail(id,ErrorCode.FORMAT,"身份证号中的生日格式不正确！");
+    }
+
+    private static ValidationResult regionFail(String id){
+        return ValidationResult.fail(id,ErrorCode.REGION,"身份证前六位没有找到相应的省市区！");
+    }
+
+    private static ValidationResult success(String id,int birth,int code,RegionTable table,int entry){
+        //性别处理
+        Sex sex=(id.charAt(16)-'0')%2==0?Sex.WOMAN:Sex.MAN;
+        return ValidationResult.success(id,birth,sex,code,table.version(entry),table,entry);
+    }
+
+    /**
+     * 身份证号码前六位，必须已经确认为数字
+     * @param id 身份证号码
+     * @return int
+     */
+    static int code(CharSequence id){
+        int code=0;
+        for(int i=0;i<6;i++)
+            code=code*10+(id.charAt(i)-'0');
+        return code;
+    }
+
+    /**
+     * 只效验长度、格式与第18位，不读取地区代码也不创建任何对象，适合提前过滤明显错误的号码
+     * @param id 身份证号码
+     * @return ErrorCode 通过为SUCCESS，否则为LENGTH、FORMAT或VERIFY
+     */
+    public static ErrorCode quickCheck(CharSequence id){
+        return IDChecksum.check(id);
+    }
+
+    /**
+     * 获取共用的索引
+     * @return RegionIndex
+     * @throws IndexFileException 读取索引文件失败
+     */
+    RegionIndex getRegionIndex(){
+        try {
+            return RegionIndex.get(path);
+        } catch (IOException e) {
+            throw new IndexFileException("读取索引文件失败！"+e.getMessage(),e);
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public ValidationListener getListener() {
+        return listener;
+    }
+
+    public ResultCache getCache() {
+        return cache;
+    }
+}
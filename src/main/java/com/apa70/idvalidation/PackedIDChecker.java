@@ -0,0 +1,175 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+
+/**
+ * 批量效验定长存储的身份证号码的格式与第18位
+ * <p>
+ * 号码按每个18字节(ASCII)连续存放在byte[]或者ByteBuffer中，如定长格式导出的文件。
+ * 每个号码的前16位按两个long一起判断是否为数字并计算加权和(SWAR)，不需要创建String，
+ * 只有通过的号码才需要创建String再查找地区代码：
+ * <pre>
+ * BitSet passed=PackedIDChecker.check(records);
+ * for(int i=passed.nextSetBit(0);i>=0;i=passed.nextSetBit(i+1))
+ *     validator.validate(PackedIDChecker.id(records,i));
+ * </pre>
+ */
+public final class PackedIDChecker {
+
+    /** 每个号码的字节数 */
+    public static final int RECORD_LENGTH=IDChecksum.LENGTH;
+
+    /** 每个字节的高4位 */
+    private static final long HIGH_NIBBLES=0xF0F0F0F0F0F0F0F0L;
+    /** 每个字节都是'0' */
+    private static final long ZEROS=0x3030303030303030L;
+    /** 每个字节都是6，低4位大于9时加6会进位到高4位 */
+    private static final long SIXES=0x0606060606060606L;
+    /** 每个字节的低4位 */
+    private static final long LOW_NIBBLES=0x0F0F0F0F0F0F0F0FL;
+    /** 每两个字节中的低字节 */
+    private static final long EVEN_BYTES=0x00FF00FF00FF00FFL;
+
+    /** 前8位中偶数位与奇数位的系数，乘法后在最高16位得到加权和 */
+    private static final long FIRST_EVEN=multiplier(0);
+    private static final long FIRST_ODD=multiplier(1);
+    /** 第9到16位中偶数位与奇数位的系数 */
+    private static final long SECOND_EVEN=multiplier(8);
+    private static final long SECOND_ODD=multiplier(9);
+
+    private PackedIDChecker(){
+    }
+
+    /**
+     * 批量效验
+     * @param records 连续存放的号码，长度必须是18的倍数
+     * @return BitSet 第i位为第i个号码是否通过
+     */
+    public static BitSet check(byte[] records){
+        return check(ByteBuffer.wrap(records));
+    }
+
+    /**
+     * 批量效验，从position到limit，不改变buffer的position
+     * @param records 连续存放的号码，长度必须是18的倍数
+     * @return BitSet 第i位为第i个号码是否通过
+     */
+    public static BitSet check(ByteBuffer records){
+        ByteBuffer buffer=records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int count=count(buffer);
+        int base=buffer.position();
+        long[] words=new long[(count+63)>>>6];
+        for(int i=0;i<count;i++){
+            if(passes(buffer,base+i*RECORD_LENGTH))
+                words[i>>>6]|=1L<<i;
+        }
+        return BitSet.valueOf(words);
+    }
+
+    /**
+     * 逐字节效验一个号码，得到具体的错误代码
+     * @param records 连续存放的号码
+     * @param index 第几个号码，从0开始
+     * @return ErrorCode 通过为SUCCESS，否则为FORMAT或VERIFY
+     */
+    public static ErrorCode check(ByteBuffer records,int index){
+        int offset=records.position()+index*RECORD_LENGTH;
+        int idVerify=0;
+        for(int i=0;i<17;i++){
+            int digit=records.get(offset+i)-'0';
+            if(digit<0||digit>9)
+                return ErrorCode.FORMAT;
+            idVerify+=digit*IDChecksum.ID_WEIGHT[i];
+        }
+        int id18=records.get(offset+17);
+        if(id18=='x')
+            id18='X';
+        return id18==IDChecksum.ID_REMAINDER[idVerify%11]?ErrorCode.SUCCESS:ErrorCode.VERIFY;
+    }
+
+    /**
+     * 取出一个号码
+     * @param records 连续存放的号码
+     * @param index 第几个号码，从0开始
+     * @return String
+     */
+    public static String id(ByteBuffer records,int index){
+        byte[] bytes=new byte[RECORD_LENGTH];
+        ByteBuffer record=records.duplicate();
+        record.position(records.position()+index*RECORD_LENGTH);
+        record.get(bytes);
+        return new String(bytes,StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 取出一个号码
+     * @param records 连续存放的号码
+     * @param index 第几个号码，从0开始
+     * @return String
+     */
+    public static String id(byte[] records,int index){
+        return new String(records,index*RECORD_LENGTH,RECORD_LENGTH,StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * 号码的数量
+     */
+    private static int count(ByteBuffer buffer){
+        if(buffer.remaining()%RECORD_LENGTH!=0)
+            throw new IllegalArgumentException("长度必须是"+RECORD_LENGTH+"的倍数！");
+        return buffer.remaining()/RECORD_LENGTH;
+    }
+
+    /**
+     * 效验一个号码：前16位为两个long，第17位与第18位单独判断
+     */
+    private static boolean passes(ByteBuffer buffer,int offset){
+        long first=buffer.getLong(offset);
+        long second=buffer.getLong(offset+8);
+        int digit17=buffer.get(offset+16)-'0';
+        if(!isDigits(first)||!isDigits(second)||digit17<0||digit17>9)
+            return false;
+
+        first&=LOW_NIBBLES;
+        second&=LOW_NIBBLES;
+        int idVerify=weightedSum(first,FIRST_EVEN,FIRST_ODD)+weightedSum(second,SECOND_EVEN,SECOND_ODD)
+                +digit17*IDChecksum.ID_WEIGHT[16];
+
+        int id18=buffer.get(offset+17);
+        if(id18=='x')
+            id18='X';
+        return id18==IDChecksum.ID_REMAINDER[idVerify%11];
+    }
+
+    /**
+     * 8个字节是否都是'0'到'9'：高4位都是3，并且低4位加6后不进位
+     */
+    private static boolean isDigits(long bytes){
+        return (bytes&HIGH_NIBBLES)==ZEROS&&((bytes+SIXES)&HIGH_NIBBLES)==ZEROS;
+    }
+
+    /**
+     * 8个数字的加权和：偶数位与奇数位分别放到4个16位中，各乘一次系数后加权和在最高的16位
+     */
+    private static int weightedSum(long digits,long evenMultiplier,long oddMultiplier){
+        long even=digits&EVEN_BYTES;
+        long odd=(digits>>>8)&EVEN_BYTES;
+        return (int)((even*evenMultiplier)>>>48)+(int)((odd*oddMultiplier)>>>48);
+    }
+
+    /**
+     * 4个16位的系数，第j个16位为第(3-j)个数字的系数，乘法后第k个数字与第(3-k)个系数相乘的结果都在最高的16位
+     * @param from 第一个数字在号码中的位置
+     */
+    private static long multiplier(int from){
+        long multiplier=0;
+        for(int j=0;j<4;j++)
+            multiplier|=(long)IDChecksum.ID_WEIGHT[from+2*(3-j)]<<(16*j);
+        return multiplier;
+    }
+}
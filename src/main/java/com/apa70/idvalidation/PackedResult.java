@@ -0,0 +1,185 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+
+/**
+ * 验证结果编码为一个long
+ * <p>
+ * 大量保存验证结果时不需要为每个号码保存对象与省市区的名称，格式固定不会改变：
+ * <pre>
+ * 第0到2位    错误代码：0为SUCCESS，1为LENGTH，2为FORMAT，3为VERIFY，4为REGION
+ * 第3位       性别：1为女
+ * 第4到23位   出生日期：(年-1800)&lt;&lt;9 | 月&lt;&lt;5 | 日
+ * 第24到43位  地区代码版本：版本(yyyyMM)-180000+1，0为没有
+ * 第44到63位  区/县代码(6位)
+ * </pre>
+ * 验证失败时只有错误代码，其他位都是0。省级与市级代码由区/县代码得到，名称见{@link ValidationColumns}。
+ */
+public final class PackedResult {
+
+    private static final int SEX_SHIFT=3;
+    private static final int BIRTHDAY_SHIFT=4;
+    private static final int VERSION_SHIFT=24;
+    private static final int COUNTY_SHIFT=44;
+    private static final long ERROR_MASK=0x7;
+    /** 出生日期、版本与区/县代码都是20位 */
+    private static final long FIELD_MASK=(1L<<20)-1;
+
+    /** 最早的出生年份 */
+    private static final int MIN_YEAR=1800;
+    /** 最晚的出生年份 */
+    private static final int MAX_YEAR=MIN_YEAR+(1<<11)-1;
+    /** 版本的起点 */
+    private static final int VERSION_BASE=MIN_YEAR*100;
+    /** 最大的版本 */
+    private static final int MAX_VERSION=VERSION_BASE+(int)FIELD_MASK-1;
+
+    /** 错误代码的编号，与枚举的顺序无关，不能修改 */
+    private static final ErrorCode[] ERROR_CODES={ErrorCode.SUCCESS,ErrorCode.LENGTH,ErrorCode.FORMAT,ErrorCode.VERIFY,ErrorCode.REGION};
+    /** 每个错误代码(按枚举的顺序)的编号 */
+    private static final int[] ERROR_NUMBERS=new int[ErrorCode.values().length];
+
+    static {
+        for(int i=0;i<ERROR_CODES.length;i++)
+            ERROR_NUMBERS[ERROR_CODES[i].ordinal()]=i;
+    }
+
+    private PackedResult(){
+    }
+
+    /**
+     * 编码
+     * @param result 验证结果
+     * @return long
+     */
+    public static long encode(ValidationResult result){
+        if(!result.isSuccess())
+            return fail(result.getErrorCode());
+        return success(result.getBirthday(),result.getSex()==Sex.WOMAN,result.getCountyCode(),result.getRegionVersion());
+    }
+
+    /**
+     * 编码
+     * @param errorCode 错误代码，不是SUCCESS时忽略其他参数
+     * @param birthday 出生日期如 19900307
+     * @param sex 性别
+     * @param countyCode 区/县代码
+     * @param regionVersion 地区代码版本如 199000
+     * @return long
+     */
+    public static long encode(ErrorCode errorCode,int birthday,Sex sex,int countyCode,int regionVersion){
+        if(errorCode==null)
+            throw new IllegalArgumentException("errorCode不能为null！");
+        if(errorCode!=ErrorCode.SUCCESS)
+            return fail(errorCode);
+        if(sex==null)
+            throw new IllegalArgumentException("sex不能为null！");
+        int year=birthday/10000,month=birthday/100%100,day=birthday%100;
+        if(year<MIN_YEAR||year>MAX_YEAR||month<1||month>12||day<1||day>31)
+            throw new IllegalArgumentException("birthday必须为"+MIN_YEAR+"到"+MAX_YEAR+"年的yyyyMMdd！");
+        if(countyCode<0||countyCode>999999)
+            throw new IllegalArgumentException("countyCode必须为6位！");
+        if(regionVersion<VERSION_BASE||regionVersion>MAX_VERSION)
+            throw new IllegalArgumentException("regionVersion必须在"+VERSION_BASE+"到"+MAX_VERSION+"之间！");
+        return success(birthday,sex==Sex.WOMAN,countyCode,regionVersion);
+    }
+
+    /**
+     * 验证失败的编码
+     */
+    static long fail(ErrorCode errorCode){
+        return ERROR_NUMBERS[errorCode.ordinal()];
+    }
+
+    /**
+     * 验证成功的编码，参数必须已经确认在范围内
+     */
+    static long success(int birthday,boolean woman,int countyCode,int regionVersion){
+        int year=birthday/10000,month=birthday/100%100,day=birthday%100;
+        long date=((long)(year-MIN_YEAR)<<9)|(month<<5)|day;
+        return (woman?1L<<SEX_SHIFT:0)
+                |date<<BIRTHDAY_SHIFT
+                |(long)(regionVersion-VERSION_BASE+1)<<VERSION_SHIFT
+                |(long)countyCode<<COUNTY_SHIFT;
+    }
+
+    /**
+     * 错误代码
+     * @param packed 编码
+     * @return ErrorCode
+     */
+    public static ErrorCode errorCode(long packed){
+        return ERROR_CODES[(int)(packed&ERROR_MASK)];
+    }
+
+    /**
+     * 是否验证成功
+     * @param packed 编码
+     * @return bool
+     */
+    public static boolean isSuccess(long packed){
+        return (packed&ERROR_MASK)==0;
+    }
+
+    /**
+     * 性别
+     * @param packed 编码
+     * @return Sex 验证失败时为null
+     */
+    public static Sex sex(long packed){
+        if(!isSuccess(packed))
+            return null;
+        return (packed>>>SEX_SHIFT&1)==1?Sex.WOMAN:Sex.MAN;
+    }
+
+    /**
+     * 出生日期
+     * @param packed 编码
+     * @return int yyyyMMdd，验证失败时为0
+     */
+    public static int birthday(long packed){
+        if(!isSuccess(packed))
+            return 0;
+        int date=(int)(packed>>>BIRTHDAY_SHIFT&FIELD_MASK);
+        return (MIN_YEAR+(date>>>9))*10000+(date>>>5&0xF)*100+(date&0x1F);
+    }
+
+    /**
+     * 地区代码版本
+     * @param packed 编码
+     * @return int 如 199000，验证失败时为0
+     */
+    public static int regionVersion(long packed){
+        int version=(int)(packed>>>VERSION_SHIFT&FIELD_MASK);
+        return version==0?0:version+VERSION_BASE-1;
+    }
+
+    /**
+     * 区/县代码
+     * @param packed 编码
+     * @return int 验证失败时为0
+     */
+    public static int countyCode(long packed){
+        return (int)(packed>>>COUNTY_SHIFT);
+    }
+
+    /**
+     * 市代码
+     * @param packed 编码
+     * @return int 验证失败时为0
+     */
+    public static int cityCode(long packed){
+        return countyCode(packed)/100*100;
+    }
+
+    /**
+     * 省代码
+     * @param packed 编码
+     * @return int 验证失败时为0
+     */
+    public static int provinceCode(long packed){
+        return countyCode(packed)/10000*10000;
+    }
+}
@@ -0,0 +1,91 @@
+package com.apa70.idvalidation;
+
+/**
+ * 所有版本中出现过的地区代码的位图
+ * <p>
+ * 表中最小到最大的代码每个一位(所有省约90KB，一个省最多1.2KB)，另外每个省(前两位)一位。
+ * 验证时在解析出生日期与查找版本之前先检查，不可能存在的前六位只需要一两次数组访问就能排除。
+ * 只包括至少有一个版本能够找到省市区的代码，位图中有的代码还要按出生年月查找版本才能确定。
+ * <p>
+ * 随{@link RegionIndex}一起创建，地区代码重新加载后也会重新创建。创建后不可修改，可以在多线程下共用。
+ */
+final class RegionFilter {
+
+    /** 6位代码的数量 */
+    static final int CODES=1000000;
+    /** 省(前两位)的数量 */
+    private static final int PROVINCES=100;
+
+    /** 每个省一位 */
+    private final long[] provinces=new long[(PROVINCES+63)>>>6];
+    /** 第一位对应的代码 */
+    private final int base;
+    /** 从base开始每个代码一位 */
+    private final long[] codes;
+
+    private RegionFilter(int base,int count){
+        this.base=base;
+        this.codes=new long[(count+63)>>>6];
+    }
+
+    /**
+     * 从地区代码表创建
+     * @param table 地区代码表
+     * @return RegionFilter
+     */
+    static RegionFilter of(RegionTable table){
+        //代码已经排好序，只需要表中最小到最大的代码
+        int min=0,max=-1;
+        for(int position=0;position<table.size();position++){
+            int code=table.code(position);
+            if(code>=0&&code<CODES){
+                if(max<0)
+                    min=code;
+                max=code;
+            }
+        }
+        RegionFilter filter=new RegionFilter(min,max-min+1);
+        for(int position=0;position<table.size();position++){
+            int code=table.code(position);
+            if(code<0||code>=CODES)
+                continue;
+            for(int entry=table.from(position);entry<table.to(position);entry++){
+                //省级与市级有同一个版本时才能找到省市区
+                if(table.provinceIndex(entry)>=0){
+                    int bit=code-min;
+                    filter.codes[bit>>>6]|=1L<<bit;
+                    int province=code/10000;
+                    filter.provinces[province>>>6]|=1L<<province;
+                    break;
+                }
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * 代码是否可能找到省市区
+     * @param code 身份证号码前六位
+     * @return bool 为false时任何出生年月都找不到
+     */
+    boolean mayContain(int code){
+        if(code<0||code>=CODES)
+            return false;
+        int province=code/10000;
+        if((provinces[province>>>6]&(1L<<province))==0)
+            return false;
+        int bit=code-base;
+        return bit>=0&&bit<codes.length<<6&&(codes[bit>>>6]&(1L<<bit))!=0;
+    }
+
+    /**
+     * 位图中代码的数量
+     * @return int
+     */
+    int cardinality(){
+        int count=0;
+        for(long word:codes)
+            count+=Long.bitCount(word);
+        return count;
+    }
+}
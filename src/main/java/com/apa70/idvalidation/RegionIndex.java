@@ -0,0 +1,529 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.Region;
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 地区代码索引
+ * <p>
+ * 自带的code.json与自定义目录下的code.json合并后的只读数据，每个进程只在第一次使用时加载一次，
+ * 之后所有的IDValidation实例共用同一份，可以在多线程下安全使用。
+ * <p>
+ * 数据保存在紧凑的{@link RegionTable}中，设置系统属性{@value #DIRECT_PROPERTY}=true时放到堆外内存。
+ * 同一目录下有code.bin快照(见{@link Collect#snapshot(String)})并且是由现在的code.json生成的(按长度与CRC32判断)时直接映射快照，不再解析json。
+ * <p>
+ * 只验证某段时间出生的号码时，设置系统属性{@value #FROM_PROPERTY}与{@value #TO_PROPERTY}(出生年月如 195001)
+ * 只保留这段时间会使用的版本，出生年月在这之间时结果与全部版本相同。
+ * <b>出生年月在这之外时结果不可靠</b>：只能使用保留下来的版本，可能使用了错误的版本(名称与全部版本时不同)，
+ * 也可能验证结果为REGION，与前六位错误无法区分。需要区分时先用{@link #covers(int)}判断出生年月是否在范围内。
+ * 设置系统属性{@value #LAZY_PROPERTY}=true时按省懒加载(见{@link RegionSegments})，某个省第一次使用时才读取这个省的数据。
+ * <p>
+ * 自定义目录的数据加载后不会再读取文件，需要更新时调用{@link #reload(String)}，
+ * 或者通过{@link #watch(String, long, TimeUnit)}监视目录，发生变化后在后台创建新的索引并整个替换。
+ */
+public final class RegionIndex {
+
+    /** 是否把地区代码表放到堆外内存的系统属性 */
+    public static final String DIRECT_PROPERTY="idvalidation.region.direct";
+    /** 最早的出生年月的系统属性 */
+    public static final String FROM_PROPERTY="idvalidation.region.from";
+    /** 最晚的出生年月的系统属性 */
+    public static final String TO_PROPERTY="idvalidation.region.to";
+    /** 是否按省懒加载的系统属性 */
+    public static final String LAZY_PROPERTY="idvalidation.region.lazy";
+
+    /** 自带数据的目录 */
+    private static final String RESOURCES_PATH="/administrative-code-data/";
+    /** 自定义目录下数据的相对目录 */
+    private static final String CUSTOM_PATH="/administrative-code-data/";
+    /** json数据的文件名 */
+    private static final String JSON_FILE_NAME="code.json";
+
+    /** 只有自带数据的索引 */
+    private static volatile RegionIndex resourcesIndex;
+    /** 合并了自定义目录的索引，key为自定义目录 */
+    private static final ConcurrentMap<String,RegionSource> CUSTOM_INDEXES=new ConcurrentHashMap<>();
+    /** 加载的监听 */
+    private static final List<ValidationListener> LOAD_LISTENERS=new CopyOnWriteArrayList<>();
+
+    /** 地区代码表，按省懒加载时为null */
+    private final RegionTable table;
+    /** 所有版本中出现过的地区代码的位图，按省懒加载时为null */
+    private final RegionFilter filter;
+    /** 按省懒加载的数据，不按省加载时为null */
+    private final RegionSegments segments;
+    /** 查询对象，第一次使用时创建 */
+    private volatile RegionQuery query;
+    /** 最早的出生年月，Integer.MIN_VALUE为不限 */
+    private final int from;
+    /** 最晚的出生年月，Integer.MAX_VALUE为不限 */
+    private final int to;
+
+    /**
+     * 按系统属性只保留出生年月在{@value #FROM_PROPERTY}到{@value #TO_PROPERTY}之间会使用的版本
+     * @param table 地区代码表
+     */
+    RegionIndex(RegionTable table){
+        this(table,Integer.getInteger(FROM_PROPERTY,Integer.MIN_VALUE),Integer.getInteger(TO_PROPERTY,Integer.MAX_VALUE));
+    }
+
+    /**
+     * @param table 地区代码表
+     * @param from 最早的出生年月，Integer.MIN_VALUE为不限
+     * @param to 最晚的出生年月，Integer.MAX_VALUE为不限
+     */
+    RegionIndex(RegionTable table,int from,int to){
+        if(from>to)
+            throw new IllegalArgumentException(FROM_PROPERTY+"不能晚于"+TO_PROPERTY+"！");
+        if(from!=Integer.MIN_VALUE||to!=Integer.MAX_VALUE)
+            table=table.window(from,to);
+        this.table=Boolean.getBoolean(DIRECT_PROPERTY)&&!table.isDirect()?table.toDirect():table;
+        this.filter=RegionFilter.of(table);
+        this.segments=null;
+        this.from=from;
+        this.to=to;
+    }
+
+    /**
+     * 按省懒加载
+     * @param segments 按省懒加载的数据
+     */
+    RegionIndex(RegionSegments segments){
+        this.table=null;
+        this.filter=null;
+        this.segments=segments;
+        //每个省的索引按系统属性只保留一段时间的版本
+        this.from=Integer.getInteger(FROM_PROPERTY,Integer.MIN_VALUE);
+        this.to=Integer.getInteger(TO_PROPERTY,Integer.MAX_VALUE);
+    }
+
+    /**
+     * 获取索引
+     * @param path 自定义目录，为空或者目录不存在时只使用自带的数据
+     * @return RegionIndex
+     * @throws IOException
+     */
+    public static RegionIndex get(String path) throws IOException {
+        if(path==null||path.equals(""))
+            return getResources();
+        return source(path).get();
+    }
+
+    /**
+     * 立即重新加载自定义目录的数据，加载完成后整个替换原来的索引
+     * @param path 自定义目录
+     * @return RegionIndex 新的索引
+     * @throws IOException 加载失败时继续使用原来的索引
+     */
+    public static RegionIndex reload(String path) throws IOException {
+        return source(path).reload();
+    }
+
+    /**
+     * 开始监视自定义目录，每隔一段时间检查一次code.json与code.bin，
+     * 发生变化并且写完后在后台线程重新加载，加载完成后整个替换原来的索引
+     * @param path 自定义目录
+     * @param interval 检查的间隔
+     * @param unit 间隔的单位
+     */
+    public static void watch(String path,long interval,TimeUnit unit){
+        if(interval<=0)
+            throw new IllegalArgumentException("interval必须大于0！");
+        source(path).watch(interval,unit);
+    }
+
+    /**
+     * 停止监视自定义目录
+     * @param path 自定义目录
+     */
+    public static void unwatch(String path){
+        RegionSource source=CUSTOM_INDEXES.get(path);
+        if(source!=null)
+            source.unwatch();
+    }
+
+    /**
+     * 添加加载的监听，每次加载或重新加载地区代码后调用{@link ValidationListener#onIndexLoad(String, long, boolean)}
+     * @param listener 监听
+     */
+    public static void addLoadListener(ValidationListener listener){
+        if(listener==null)
+            throw new IllegalArgumentException("listener不能为null！");
+        LOAD_LISTENERS.add(listener);
+    }
+
+    /**
+     * 移除加载的监听
+     * @param listener 监听
+     */
+    public static void removeLoadListener(ValidationListener listener){
+        LOAD_LISTENERS.remove(listener);
+    }
+
+    /**
+     * 已经加载过这个自定义目录时立即重新加载，Collect写入新的数据后调用
+     * @param path 自定义目录
+     * @throws IOException
+     */
+    static void refresh(String path) throws IOException {
+        RegionSource source=CUSTOM_INDEXES.get(path);
+        if(source!=null&&source.isLoaded())
+            source.reload();
+    }
+
+    /**
+     * 通知加载的监听
+     * @param path 自定义目录，自带的数据为null
+     * @param start 开始加载时System.nanoTime()的值
+     * @param reload 是否为重新加载
+     */
+    static void fireLoad(String path,long start,boolean reload){
+        if(LOAD_LISTENERS.isEmpty())
+            return;
+        long nanos=System.nanoTime()-start;
+        for(ValidationListener listener:LOAD_LISTENERS){
+            try {
+                listener.onIndexLoad(path,nanos,reload);
+            } catch (RuntimeException e) {
+                //监听的异常不影响加载，也不影响其他监听
+            }
+        }
+    }
+
+    /**
+     * 通知监听后台重新加载失败
+     */
+    static void fireLoadFailure(String path,Exception e){
+        for(ValidationListener listener:LOAD_LISTENERS){
+            try {
+                listener.onIndexLoadFailure(path,e);
+            } catch (RuntimeException ignored) {
+                //监听的异常不影响后台线程继续监视
+            }
+        }
+    }
+
+    private static RegionSource source(String path){
+        if(path==null||path.equals(""))
+            throw new IllegalArgumentException("path不能为空！");
+        RegionSource source=CUSTOM_INDEXES.get(path);
+        if(source!=null)
+            return source;
+        RegionSource created=new RegionSource(path,new File(path+CUSTOM_PATH));
+        source=CUSTOM_INDEXES.putIfAbsent(path,created);
+        return source!=null?source:created;
+    }
+
+    /**
+     * 获取只有自带数据的索引
+     * @return RegionIndex
+     * @throws IOException
+     */
+    public static RegionIndex getResources() throws IOException {
+        RegionIndex index=resourcesIndex;
+        if(index!=null)
+            return index;
+
+        synchronized (RegionIndex.class){
+            if(resourcesIndex==null){
+                long start=System.nanoTime();
+                resourcesIndex=isLazy()?new RegionIndex(new RegionSegments(null)):new RegionIndex(loadResourcesTable(-1));
+                fireLoad(null,start,false);
+            }
+            return resourcesIndex;
+        }
+    }
+
+    /**
+     * 查找身份证前六位对应的省市区
+     * @param id6 身份证号码前六位
+     * @param birthday 生日精准到“月”如 201912
+     * @return Region 没有找到相应的省市区时为null
+     */
+    public Region find(String id6,int birthday){
+        if(id6==null||id6.length()!=6)
+            return null;
+        int code=0;
+        for(int i=0;i<6;i++){
+            int digit=id6.charAt(i)-'0';
+            if(digit<0||digit>9)
+                return null;
+            code=code*10+digit;
+        }
+        return find(code,birthday);
+    }
+
+    /**
+     * 查找身份证前六位对应的省市区
+     * <p>
+     * 通过出生年月找到相应版本的代码，如果找不到则使用最近的版本：优先使用出生之前最近的版本，没有再使用出生之后最近的版本。
+     * 省级与市级必须有同一个版本的数据，没有市级代码时为直辖市或者省直辖县。
+     * 每个版本的省级与市级在创建时就已经算好，查找只需要两次二分查找。
+     * 所有版本中都不存在的代码在位图中就能排除，不需要二分查找。
+     * @param code 身份证号码前六位
+     * @param birthday 生日精准到“月”如 201912
+     * @return Region 没有找到相应的省市区时为null
+     */
+    public Region find(int code,int birthday){
+        if(segments!=null)
+            return regions(code).find(code,birthday);
+
+        int entry=findEntry(code,birthday);
+        if(entry<0)
+            return null;
+        String[] namePool=table.namePool();
+        return new Region(namePool[table.provinceIndex(entry)],namePool[table.cityIndex(entry)],table.name(entry),
+                code/10000*10000,code/100*100,code,table.version(entry));
+    }
+
+    /**
+     * 与{@link #find(int, int)}相同，只返回地区代码表中的版本下标，不创建对象
+     * @param code 身份证号码前六位
+     * @param birthday 生日精准到“月”如 201912
+     * @return int 版本的下标，没有找到相应的省市区时为-1
+     */
+    int findEntry(int code,int birthday){
+        if(segments!=null)
+            throw new IllegalStateException("按省懒加载时先通过regions(code)找到所在省的索引！");
+        if(!filter.mayContain(code))
+            return -1;
+
+        //判断是否有此代码
+        int position=table.find(code);
+        if(position<0)
+            return -1;
+
+        //找出最近的版本
+        int entry=table.nearest(position,birthday);
+        if(entry<0)
+            return -1;
+
+        //省级与市级在创建地区代码表时已经算好
+        return table.provinceIndex(entry)<0?-1:entry;
+    }
+
+    /**
+     * 出生年月是否在保留的版本范围({@value #FROM_PROPERTY}到{@value #TO_PROPERTY})内，
+     * 不在范围内时查找的结果不可靠，可能使用了错误的版本或者找不到(验证结果为REGION)
+     * @param birthday 生日精准到“月”如 201912
+     * @return bool 没有设置范围时总是为true
+     */
+    public boolean covers(int birthday){
+        return birthday>=from&&birthday<=to;
+    }
+
+    /**
+     * 按代码前缀、名称与版本查询这份数据，第一次调用时创建索引
+     * @return RegionQuery
+     */
+    public RegionQuery getQuery(){
+        if(segments!=null)
+            return segments.whole().getQuery();
+        RegionQuery current=query;
+        if(current==null)
+            query=current=new RegionQuery(table);
+        return current;
+    }
+
+    /**
+     * 代码是否可能找到省市区，只检查位图，不需要出生年月
+     * @param code 身份证号码前六位
+     * @return bool 为false时任何出生年月都找不到
+     */
+    boolean mayContain(int code){
+        if(segments!=null)
+            return regions(code).mayContain(code);
+        return filter.mayContain(code);
+    }
+
+    /**
+     * 代码所在的索引：按省懒加载时为所在省的索引(第一次使用时加载)，否则为这个索引本身。
+     * 验证时先找到所在的索引，之后的查找都使用同一个，不受其他省加载的影响
+     * @param code 身份证号码前六位
+     * @return RegionIndex 不会为null
+     */
+    RegionIndex regions(int code){
+        if(segments==null)
+            return this;
+        int province=code<0||code>=RegionFilter.CODES?0:code/10000;
+        return segments.province(province);
+    }
+
+    /**
+     * 有全部数据的索引：按省懒加载时第一次使用会加载全部数据，否则为这个索引本身
+     * @return RegionIndex
+     */
+    RegionIndex whole(){
+        return segments==null?this:segments.whole();
+    }
+
+    /**
+     * 已经加载的省的数量
+     * @return int 不按省懒加载时为-1
+     */
+    int loadedProvinces(){
+        return segments==null?-1:segments.loaded();
+    }
+
+    /**
+     * 地区代码表，按省懒加载时为全部数据的表
+     * @return RegionTable
+     */
+    RegionTable getTable(){
+        return segments!=null?segments.whole().getTable():table;
+    }
+
+    /**
+     * 是否按省懒加载
+     * @return bool
+     */
+    static boolean isLazy(){
+        return Boolean.getBoolean(LAZY_PROPERTY);
+    }
+
+    /**
+     * 是否只保留一段时间的版本
+     * @return bool
+     */
+    static boolean hasWindow(){
+        return System.getProperty(FROM_PROPERTY)!=null||System.getProperty(TO_PROPERTY)!=null;
+    }
+
+    /**
+     * 读取自带的数据，有快照时优先使用快照
+     * @param province 只读取这个省(前两位)，小于0时为全部
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable loadResourcesTable(int province) throws IOException {
+        ByteBuffer snapshot=loadResourcesSnapshot();
+        if(snapshot!=null)
+            return RegionSnapshot.read(snapshot,province);
+        return loadResourcesJson(province);
+    }
+
+    /**
+     * 打开自带数据的快照，用{@link RegionSnapshot#read(ByteBuffer, int)}读取全部或者一个省
+     * @return ByteBuffer 已经效验过的快照，没有快照或者快照损坏(有json可以使用)时为null
+     * @throws IOException
+     */
+    static ByteBuffer loadResourcesSnapshot() throws IOException {
+        URL snapshot=RegionIndex.class.getResource(RESOURCES_PATH+RegionSnapshot.FILE_NAME);
+        if(snapshot==null)
+            return null;
+        try {
+            return RegionSnapshot.open(snapshot);
+        } catch (IndexFileException e) {
+            //快照损坏时使用json
+            if(RegionIndex.class.getResource(RESOURCES_PATH+JSON_FILE_NAME)==null)
+                throw e;
+            return null;
+        }
+    }
+
+    /**
+     * 读取自带数据的json
+     * @param province 只读取这个省(前两位)，小于0时为全部
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable loadResourcesJson(int province) throws IOException {
+        InputStream inputStream=RegionIndex.class.getResourceAsStream(RESOURCES_PATH+JSON_FILE_NAME);
+        if(inputStream==null)
+            throw new IndexFileException("找不到自带的索引文件！");
+        return new RegionTable.Builder().putAll(read(inputStream,province)).build();
+    }
+
+    /**
+     * 读取某个目录下的数据，有由现在的code.json生成的快照时优先使用快照
+     * @param dataPath administrative-code-data目录
+     * @param province 只读取这个省(前两位)，小于0时为全部
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable loadTable(File dataPath,int province) throws IOException {
+        ByteBuffer snapshot=loadSnapshot(dataPath);
+        if(snapshot!=null)
+            return RegionSnapshot.read(snapshot,province);
+        return loadJson(dataPath,province);
+    }
+
+    /**
+     * 映射某个目录下的快照，用{@link RegionSnapshot#read(ByteBuffer, int)}读取全部或者一个省
+     * @param dataPath administrative-code-data目录
+     * @return ByteBuffer 已经效验过的快照，没有快照、快照不是由现在的code.json生成或者快照损坏(有json可以使用)时为null
+     * @throws IOException
+     */
+    static ByteBuffer loadSnapshot(File dataPath) throws IOException {
+        File snapshot=new File(dataPath,RegionSnapshot.FILE_NAME);
+        File json=new File(dataPath,JSON_FILE_NAME);
+        //按内容判断快照是否与code.json一致，修改时间相同时也不会使用旧的快照
+        if(!snapshot.isFile()||json.exists()&&!RegionSnapshot.isSnapshotOf(snapshot,json))
+            return null;
+        try {
+            return RegionSnapshot.open(snapshot);
+        } catch (IndexFileException e) {
+            //快照损坏时使用json
+            if(!json.exists())
+                throw e;
+            return null;
+        }
+    }
+
+    /**
+     * 读取某个目录下的code.json
+     * @param dataPath administrative-code-data目录
+     * @param province 只读取这个省(前两位)，小于0时为全部
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable loadJson(File dataPath,int province) throws IOException {
+        return new RegionTable.Builder().putAll(read(new FileInputStream(new File(dataPath,JSON_FILE_NAME)),province)).build();
+    }
+
+    /**
+     * 读取索引文件，两种格式(见{@link CodeFile})都可以
+     * @param inputStream 索引文件的inputStream对象
+     * @param province 只读取这个省(前两位)，小于0时为全部
+     * @return CodeFile
+     * @throws IOException
+     */
+    private static CodeFile read(InputStream inputStream,int province) throws IOException {
+        if(province>=0)
+            return CodeFile.read(inputStream,province);
+        String indexString=getFileText(inputStream);
+        if(indexString.equals(""))
+            throw new IndexFileException("索引文件为空！");
+        return CodeFile.parse(indexString);
+    }
+
+    /**
+     * 读取文件
+     * @param inputStream InputStream对象
+     * @return string 文件的内容
+     * @throws IOException
+     * */
+    private static String getFileText(InputStream inputStream) throws IOException {
+        StringBuilder sbf = new StringBuilder();
+        try {
+            BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+            String line;
+            while ((line = br.readLine()) != null) {
+                sbf.append(line);
+            }
+            return sbf.toString();
+        }finally {
+            inputStream.close();
+        }
+    }
+}
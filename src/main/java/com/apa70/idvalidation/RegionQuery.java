@@ -0,0 +1,302 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.Region;
+import com.apa70.idvalidation.entity.RegionDiff;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * 按代码前缀、名称与版本查询地区代码
+ * <p>
+ * 地区代码表中的行政代码已经排好序，相同前缀(如"37"、"3712")的代码是连续的一段，
+ * 两次二分查找就能找到，相当于按位的前缀树。名称另外建了倒排索引：所有名称排好序，
+ * 每个名称对应使用过这个名称的所有代码与版本，按名称查询与按名称前缀补全都是二分查找。
+ * <p>
+ * 每个版本为一年的完整数据，查询时的年月(如 201801)使用不晚于它的最近的版本，早于所有版本时使用最早的版本。
+ * 与验证时不同，某个代码在这个版本中不存在时不会使用它其他的版本。
+ * <p>
+ * 通过{@link RegionIndex#getQuery()}获取，创建后不可修改，可以在多线程下共用。
+ * <pre>
+ * RegionQuery query=RegionQuery.get(null);
+ * query.byName("莱芜市",201801);
+ * query.counties("37",202001);
+ * query.diff(201800,201900).getRemoved();
+ * </pre>
+ */
+public final class RegionQuery {
+
+    /** 地区代码表 */
+    private final RegionTable table;
+    /** 所有的版本，从小到大 */
+    private final int[] versions;
+    /** 每个版本的下标对应的行政代码的位置 */
+    private final int[] positions;
+    /** 所有使用过的名称，从小到大 */
+    private final String[] names;
+    /** 每个名称对应的版本的下标，按行政代码与版本从小到大 */
+    private final int[][] postings;
+
+    RegionQuery(RegionTable table){
+        this.table=table;
+
+        int entries=table.entries();
+        positions=new int[entries];
+        TreeSet<Integer> versionSet=new TreeSet<>();
+        int[] counts=new int[table.namePool().length];
+        for(int position=0;position<table.size();position++){
+            for(int entry=table.from(position);entry<table.to(position);entry++){
+                positions[entry]=position;
+                versionSet.add(table.version(entry));
+                counts[table.nameIndex(entry)]++;
+            }
+        }
+        versions=new int[versionSet.size()];
+        int i=0;
+        for(int version:versionSet)
+            versions[i++]=version;
+
+        //只保留有代码使用的名称，按名称排序
+        String[] namePool=table.namePool();
+        Integer[] order=new Integer[namePool.length];
+        int used=0;
+        for(int nameIndex=0;nameIndex<namePool.length;nameIndex++){
+            if(counts[nameIndex]>0)
+                order[used++]=nameIndex;
+        }
+        order=Arrays.copyOf(order,used);
+        Arrays.sort(order,Comparator.comparing(nameIndex -> namePool[nameIndex]));
+
+        names=new String[used];
+        postings=new int[used][];
+        int[] ranks=new int[namePool.length];
+        for(i=0;i<used;i++){
+            names[i]=namePool[order[i]];
+            postings[i]=new int[counts[order[i]]];
+            ranks[order[i]]=i;
+        }
+        int[] filled=new int[used];
+        for(int entry=0;entry<entries;entry++){
+            int rank=ranks[table.nameIndex(entry)];
+            postings[rank][filled[rank]++]=entry;
+        }
+    }
+
+    /**
+     * 获取查询对象
+     * @param path 自定义目录，为空或者目录不存在时只使用自带的数据
+     * @return RegionQuery
+     * @throws IOException
+     */
+    public static RegionQuery get(String path) throws IOException {
+        return RegionIndex.get(path).getQuery();
+    }
+
+    /**
+     * 所有的版本
+     * @return int[] 从小到大，如 198000
+     */
+    public int[] getVersions(){
+        return versions.clone();
+    }
+
+    /**
+     * 某个年月使用的版本：不晚于它的最近的版本，早于所有版本时为最早的版本
+     * @param yearMonth 年月如 201801
+     * @return int 版本，没有任何数据时为-1
+     */
+    public int version(int yearMonth){
+        if(versions.length==0)
+            return -1;
+        int index=Arrays.binarySearch(versions,yearMonth);
+        if(index>=0)
+            return versions[index];
+        int insertion=-index-1;
+        return insertion>0?versions[insertion-1]:versions[0];
+    }
+
+    /**
+     * 查找某个代码在某个年月的数据
+     * @param code 行政代码
+     * @param yearMonth 年月如 201801
+     * @return Region 这个版本中没有这个代码时为null
+     */
+    public Region find(int code,int yearMonth){
+        int position=table.find(code);
+        if(position<0)
+            return null;
+        int entry=table.exact(position,version(yearMonth));
+        return entry<0?null:region(entry);
+    }
+
+    /**
+     * 某个年月所有以prefix开头的代码，包括省级、市级与县级
+     * @param prefix 代码的前缀，1到6位数字，如"37"为山东省
+     * @param yearMonth 年月如 201801
+     * @return List 按代码从小到大
+     */
+    public List<Region> prefix(String prefix,int yearMonth){
+        return prefix(prefix,yearMonth,false);
+    }
+
+    /**
+     * 某个年月所有以prefix开头的县级代码(后两位不是00)
+     * @param prefix 代码的前缀，1到6位数字，如"37"为山东省
+     * @param yearMonth 年月如 201801
+     * @return List 按代码从小到大
+     */
+    public List<Region> counties(String prefix,int yearMonth){
+        return prefix(prefix,yearMonth,true);
+    }
+
+    /**
+     * 某个年月名称为name的代码，如"莱芜市"
+     * @param name 名称
+     * @param yearMonth 年月如 201801
+     * @return List 按代码从小到大
+     */
+    public List<Region> byName(String name,int yearMonth){
+        int rank=Arrays.binarySearch(names,name);
+        if(rank<0)
+            return Collections.emptyList();
+        int version=version(yearMonth);
+        List<Region> regions=new ArrayList<>();
+        for(int entry:postings[rank]){
+            if(table.version(entry)==version)
+                regions.add(region(entry));
+        }
+        return regions;
+    }
+
+    /**
+     * 所有使用过名称name的代码，每个代码为最后一个使用这个名称的版本
+     * @param name 名称
+     * @return List 按代码从小到大
+     */
+    public List<Region> byName(String name){
+        int rank=Arrays.binarySearch(names,name);
+        if(rank<0)
+            return Collections.emptyList();
+        List<Region> regions=new ArrayList<>();
+        int[] entries=postings[rank];
+        for(int i=0;i<entries.length;i++){
+            //同一个代码的版本是连续的，取最后一个
+            if(i+1==entries.length||positions[entries[i+1]]!=positions[entries[i]])
+                regions.add(region(entries[i]));
+        }
+        return regions;
+    }
+
+    /**
+     * 名称以namePrefix开头的代码，用于输入时的自动补全
+     * @param namePrefix 名称的前缀，如"莱芜"
+     * @param yearMonth 年月如 201801
+     * @param limit 最多返回的数量
+     * @return List 按名称排序，名称相同时按代码
+     */
+    public List<Region> suggest(String namePrefix,int yearMonth,int limit){
+        if(namePrefix==null)
+            throw new IllegalArgumentException("namePrefix不能为null！");
+        if(limit<=0)
+            throw new IllegalArgumentException("limit必须大于0！");
+        int version=version(yearMonth);
+        List<Region> regions=new ArrayList<>();
+        for(int rank=lowerBound(namePrefix);rank<names.length&&names[rank].startsWith(namePrefix);rank++){
+            for(int entry:postings[rank]){
+                if(table.version(entry)!=version)
+                    continue;
+                regions.add(region(entry));
+                if(regions.size()==limit)
+                    return regions;
+            }
+        }
+        return regions;
+    }
+
+    /**
+     * 两个年月之间新增、撤销与改名的代码
+     * @param fromYearMonth 原来的年月如 201800
+     * @param toYearMonth 新的年月如 201900
+     * @return RegionDiff
+     */
+    public RegionDiff diff(int fromYearMonth,int toYearMonth){
+        int fromVersion=version(fromYearMonth),toVersion=version(toYearMonth);
+        List<Region> added=new ArrayList<>(),removed=new ArrayList<>(),renamed=new ArrayList<>();
+        for(int position=0;position<table.size();position++){
+            int fromEntry=table.exact(position,fromVersion);
+            int toEntry=table.exact(position,toVersion);
+            if(fromEntry<0&&toEntry<0)
+                continue;
+            if(fromEntry<0)
+                added.add(region(toEntry));
+            else if(toEntry<0)
+                removed.add(region(fromEntry));
+            else if(table.nameIndex(fromEntry)!=table.nameIndex(toEntry))
+                renamed.add(region(toEntry));
+        }
+        return new RegionDiff(fromVersion,toVersion,added,removed,renamed);
+    }
+
+    private List<Region> prefix(String prefix,int yearMonth,boolean countiesOnly){
+        if(prefix==null||prefix.isEmpty()||prefix.length()>6)
+            throw new IllegalArgumentException("prefix必须为1到6位数字！");
+        int low=0;
+        for(int i=0;i<prefix.length();i++){
+            int digit=prefix.charAt(i)-'0';
+            if(digit<0||digit>9)
+                throw new IllegalArgumentException("prefix必须为1到6位数字！");
+            low=low*10+digit;
+        }
+        //前缀相同的代码为[low,high)
+        int scale=1;
+        for(int i=prefix.length();i<6;i++)
+            scale*=10;
+        low*=scale;
+        int high=low+scale;
+
+        int version=version(yearMonth);
+        List<Region> regions=new ArrayList<>();
+        for(int position=lowerBound(low);position<table.size()&&table.code(position)<high;position++){
+            if(countiesOnly&&table.code(position)%100==0)
+                continue;
+            int entry=table.exact(position,version);
+            if(entry>=0)
+                regions.add(region(entry));
+        }
+        return regions;
+    }
+
+    /**
+     * 第一个不小于code的行政代码的位置
+     */
+    private int lowerBound(int code){
+        int low=0,high=table.size();
+        while(low<high){
+            int middle=(low+high)>>>1;
+            if(table.code(middle)<code)
+                low=middle+1;
+            else
+                high=middle;
+        }
+        return low;
+    }
+
+    /**
+     * 第一个不小于name的名称的位置
+     */
+    private int lowerBound(String name){
+        int index=Arrays.binarySearch(names,name);
+        return index>=0?index:-index-1;
+    }
+
+    /**
+     * 某个版本的数据，省级或市级没有这个版本时省市的名称为null
+     */
+    private Region region(int entry){
+        int code=table.code(positions[entry]);
+        String[] namePool=table.namePool();
+        int province=table.provinceIndex(entry);
+        return new Region(province<0?null:namePool[province],province<0?null:namePool[table.cityIndex(entry)],table.name(entry),
+                code/10000*10000,code/100*100,code,table.version(entry));
+    }
+}
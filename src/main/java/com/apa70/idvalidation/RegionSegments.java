@@ -0,0 +1,135 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 按省懒加载的地区代码
+ * <p>
+ * 设置系统属性{@value RegionIndex#LAZY_PROPERTY}=true时使用。创建时不读取任何数据，某个省(前两位)第一次使用时
+ * 只读取这个省的行政代码并创建这个省的{@link RegionIndex}，占用的内存与加载时间只与使用到的省有关。
+ * 省级与市级的代码都在同一个省内，所以每个省单独计算省市区的结果与全部加载时相同。
+ * <p>
+ * 有快照时只在第一次使用时映射(在jar中时读取到堆外内存)并效验一次，之后每个省都从这份快照中取出，
+ * 不会每个省都读取一次整个快照。保留的只是快照的原始数据，不在堆内；每个省只把这个省的数据复制到堆内，
+ * 名称也只解码这个省用到的(见{@link RegionSnapshot#read(ByteBuffer, int)})，不会解码整个名称池。
+ * 没有快照时每个省从json中流式读取，只保存这个省的数据。
+ * <p>
+ * 查询、生成测试号码与按列输出需要全部数据，第一次使用时另外加载一份全部数据的索引。
+ * 文件在使用到某个省时才读取，所以读取失败不是在加载时而是在验证时抛出{@link IndexFileException}。
+ */
+final class RegionSegments {
+
+    /** 省(前两位)的数量 */
+    private static final int PROVINCES=100;
+
+    /** 自定义目录下的administrative-code-data目录，只使用自带的数据时为null */
+    private final File dataPath;
+    /** 每个省的索引，还没有加载时为null */
+    private final AtomicReferenceArray<RegionIndex> provinces=new AtomicReferenceArray<>(PROVINCES);
+    /** 全部数据的索引，第一次使用时加载 */
+    private volatile RegionIndex whole;
+    /** 自带数据的快照的原始数据，没有快照时为null，只在synchronized中使用 */
+    private ByteBuffer resourcesSnapshot;
+    /** 自定义目录的快照的原始数据，没有快照时为null，只在synchronized中使用 */
+    private ByteBuffer customSnapshot;
+    /** 是否已经读取过快照 */
+    private boolean snapshotsLoaded=false;
+
+    /**
+     * @param dataPath 自定义目录下的administrative-code-data目录，只使用自带的数据时为null
+     */
+    RegionSegments(File dataPath){
+        this.dataPath=dataPath;
+    }
+
+    /**
+     * 某个省的索引，第一次使用时加载
+     * @param province 省，如 37
+     * @return RegionIndex 没有这个省的数据时为空的索引
+     * @throws IndexFileException 读取索引文件失败
+     */
+    RegionIndex province(int province){
+        RegionIndex index=provinces.get(province);
+        if(index!=null)
+            return index;
+
+        synchronized (this){
+            index=provinces.get(province);
+            if(index==null){
+                try {
+                    index=new RegionIndex(load(province));
+                } catch (IOException e) {
+                    throw new IndexFileException("读取索引文件失败！"+e.getMessage(),e);
+                }
+                provinces.set(province,index);
+            }
+            return index;
+        }
+    }
+
+    /**
+     * 全部数据的索引，第一次使用时加载
+     * @return RegionIndex
+     * @throws IndexFileException 读取索引文件失败
+     */
+    RegionIndex whole(){
+        RegionIndex index=whole;
+        if(index!=null)
+            return index;
+
+        synchronized (this){
+            if(whole==null){
+                try {
+                    whole=new RegionIndex(load(-1));
+                } catch (IOException e) {
+                    throw new IndexFileException("读取索引文件失败！"+e.getMessage(),e);
+                }
+            }
+            return whole;
+        }
+    }
+
+    /**
+     * 已经加载的省的数量
+     * @return int
+     */
+    int loaded(){
+        int count=0;
+        for(int i=0;i<PROVINCES;i++){
+            if(provinces.get(i)!=null)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * 读取自带的数据与自定义目录的数据合并后的表，必须在synchronized中调用
+     * @param province 省，小于0时为全部
+     */
+    private RegionTable load(int province) throws IOException {
+        if(!snapshotsLoaded){
+            resourcesSnapshot=RegionIndex.loadResourcesSnapshot();
+            if(dataPath!=null)
+                customSnapshot=RegionIndex.loadSnapshot(dataPath);
+            snapshotsLoaded=true;
+        }
+        RegionTable resources=resourcesSnapshot!=null?RegionSnapshot.read(resourcesSnapshot,province):RegionIndex.loadResourcesJson(province);
+        if(dataPath==null)
+            return resources;
+        RegionTable custom=customSnapshot!=null?RegionSnapshot.read(customSnapshot,province):RegionIndex.loadJson(dataPath,province);
+        return RegionTable.merge(resources,custom);
+    }
+
+    /**
+     * 是否已经读取过快照
+     * @return bool
+     */
+    synchronized boolean hasSnapshots(){
+        return resourcesSnapshot!=null||customSnapshot!=null;
+    }
+}
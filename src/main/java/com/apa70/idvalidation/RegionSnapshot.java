@@ -0,0 +1,345 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * 地区代码表的二进制快照(code.bin)
+ * <p>
+ * 格式为小端序：
+ * <pre>
+ * 头部 24字节：魔数 "IDRT"、格式版本、数据部分的CRC32、数据部分的长度、生成快照的code.json的长度与CRC32(没有时为-1与0)
+ * 数据部分：行政代码数量、版本数量、名称数量、codes、offsets、versions、names、provinces、cities、名称池(每个名称为2字节长度+UTF-8)
+ * </pre>
+ * 读取时直接把int列映射成IntBuffer，只需要解码名称池，不需要解析json，也不需要重新计算省级与市级。
+ * 按省懒加载时只复制一个省的int列并解码这个省用到的名称(见{@link #read(ByteBuffer, int)})。
+ * 格式版本不同的快照不读取，使用code.json。
+ * 是否与同一目录下的code.json一致按记录的长度与CRC32判断(见{@link #isSnapshotOf(File, File)})，不依赖修改时间：
+ * 修改时间的精度较低或者同一秒内重写了code.json时也不会使用旧的快照。
+ */
+final class RegionSnapshot {
+
+    /** 快照的文件名 */
+    static final String FILE_NAME="code.bin";
+    /** 魔数 "IDRT" */
+    static final int MAGIC=0x49445254;
+    /** 格式版本 */
+    static final int FORMAT_VERSION=3;
+    /** 头部的长度 */
+    private static final int HEADER_LENGTH=24;
+
+    private RegionSnapshot(){
+    }
+
+    /**
+     * 写出快照，不记录code.json
+     * @param table 地区代码表
+     * @param file 快照文件
+     * @throws IOException
+     */
+    static void write(RegionTable table,File file) throws IOException {
+        write(table,file,null);
+    }
+
+    /**
+     * 写出快照
+     * @param table 地区代码表
+     * @param file 快照文件
+     * @param source 生成快照的code.json，记录长度与CRC32，为null时不记录
+     * @throws IOException
+     */
+    static void write(RegionTable table,File file,File source) throws IOException {
+        int codes=table.size(),entries=table.entries();
+        String[] namePool=table.namePool();
+        byte[][] nameBytes=new byte[namePool.length][];
+        int namesLength=0;
+        for(int i=0;i<namePool.length;i++){
+            nameBytes[i]=namePool[i].getBytes(StandardCharsets.UTF_8);
+            if(nameBytes[i].length>0xFFFF)
+                throw new IndexFileException("名称太长："+namePool[i]);
+            namesLength+=2+nameBytes[i].length;
+        }
+
+        int payloadLength=12+(codes+codes+1+entries*4)*4+namesLength;
+        ByteBuffer buffer=ByteBuffer.allocate(HEADER_LENGTH+payloadLength).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_LENGTH);
+        buffer.putInt(codes).putInt(entries).putInt(namePool.length);
+        for(int position=0;position<codes;position++)
+            buffer.putInt(table.code(position));
+        for(int position=0;position<codes;position++)
+            buffer.putInt(table.from(position));
+        buffer.putInt(entries);
+        for(int entry=0;entry<entries;entry++)
+            buffer.putInt(table.version(entry));
+        for(int entry=0;entry<entries;entry++)
+            buffer.putInt(table.nameIndex(entry));
+        for(int entry=0;entry<entries;entry++)
+            buffer.putInt(table.provinceIndex(entry));
+        for(int entry=0;entry<entries;entry++)
+            buffer.putInt(table.cityIndex(entry));
+        for(byte[] bytes:nameBytes){
+            buffer.putShort((short)bytes.length);
+            buffer.put(bytes);
+        }
+
+        CRC32 crc32=new CRC32();
+        crc32.update(buffer.array(),HEADER_LENGTH,payloadLength);
+        buffer.putInt(0,MAGIC).putInt(4,FORMAT_VERSION).putInt(8,(int)crc32.getValue()).putInt(12,payloadLength);
+        if(source!=null)
+            buffer.putInt(16,(int)source.length()).putInt(20,crc32(source));
+        else
+            buffer.putInt(16,-1).putInt(20,0);
+
+        //先写到临时文件再改名，读取的一方不会看到写了一半的快照
+        File temp=new File(file.getPath()+".tmp");
+        try(OutputStream outputStream=new FileOutputStream(temp)){
+            outputStream.write(buffer.array());
+        }
+        if(file.exists()&&!file.delete())
+            throw new IndexFileException("无法覆盖快照文件："+file);
+        if(!temp.renameTo(file))
+            throw new IndexFileException("无法创建快照文件："+file);
+    }
+
+    /**
+     * 快照是否由这个code.json生成：比较头部记录的长度与CRC32
+     * @param file 快照文件
+     * @param source code.json
+     * @return bool 快照不完整、格式版本不同或者没有记录code.json时为false
+     * @throws IOException
+     */
+    static boolean isSnapshotOf(File file,File source) throws IOException {
+        ByteBuffer header=ByteBuffer.allocate(HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+        try(FileChannel channel=FileChannel.open(file.toPath(),StandardOpenOption.READ)){
+            while(header.hasRemaining()&&channel.read(header)>=0);
+        }
+        if(header.hasRemaining()||header.getInt(0)!=MAGIC||header.getInt(4)!=FORMAT_VERSION)
+            return false;
+        //先比较长度，不同时不需要计算CRC32
+        return header.getInt(16)==source.length()&&header.getInt(20)==crc32(source);
+    }
+
+    private static int crc32(File file) throws IOException {
+        CRC32 crc32=new CRC32();
+        try(InputStream inputStream=new FileInputStream(file)){
+            byte[] bytes=new byte[1<<16];
+            int read;
+            while((read=inputStream.read(bytes))>=0)
+                crc32.update(bytes,0,read);
+        }
+        return (int)crc32.getValue();
+    }
+
+    /**
+     * 把快照文件映射到内存中读取
+     * @param file 快照文件
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable map(File file) throws IOException {
+        return read(open(file),-1);
+    }
+
+    /**
+     * 读取快照，是文件时映射到内存中，否则(如在jar中)读取到堆外内存中
+     * @param url 快照的地址
+     * @return RegionTable
+     * @throws IOException
+     */
+    static RegionTable read(URL url) throws IOException {
+        return read(open(url),-1);
+    }
+
+    /**
+     * 读取快照
+     * @param buffer 快照的内容
+     * @return RegionTable int列直接使用buffer中的数据
+     */
+    static RegionTable read(ByteBuffer buffer){
+        return read(check(buffer),-1);
+    }
+
+    /**
+     * 把快照文件映射到内存中并效验，不解码
+     * @param file 快照文件
+     * @return ByteBuffer 用于{@link #read(ByteBuffer, int)}
+     * @throws IOException
+     */
+    static ByteBuffer open(File file) throws IOException {
+        try(FileChannel channel=FileChannel.open(file.toPath(),StandardOpenOption.READ)){
+            return check(channel.map(FileChannel.MapMode.READ_ONLY,0,channel.size()));
+        }
+    }
+
+    /**
+     * 打开快照并效验，不解码。是文件时映射到内存中，否则(如在jar中)读取到堆外内存中
+     * @param url 快照的地址
+     * @return ByteBuffer 用于{@link #read(ByteBuffer, int)}
+     * @throws IOException
+     */
+    static ByteBuffer open(URL url) throws IOException {
+        if("file".equals(url.getProtocol())){
+            try {
+                return open(new File(url.toURI()));
+            } catch (URISyntaxException e) {
+                //无法转换为文件时按流读取
+            }
+        }
+
+        ByteArrayOutputStream outputStream=new ByteArrayOutputStream(1<<20);
+        try(InputStream inputStream=url.openStream()){
+            byte[] bytes=new byte[1<<16];
+            int read;
+            while((read=inputStream.read(bytes))>=0)
+                outputStream.write(bytes,0,read);
+        }
+        byte[] bytes=outputStream.toByteArray();
+        ByteBuffer buffer=ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return check(buffer.asReadOnlyBuffer());
+    }
+
+    /**
+     * 检查魔数、格式版本、长度与CRC32
+     */
+    private static ByteBuffer check(ByteBuffer buffer){
+        buffer=buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if(buffer.remaining()<HEADER_LENGTH||buffer.getInt(0)!=MAGIC)
+            throw new IndexFileException("不是地区代码快照文件！");
+        int formatVersion=buffer.getInt(4);
+        if(formatVersion!=FORMAT_VERSION)
+            throw new IndexFileException("不支持的快照格式版本："+formatVersion);
+        int payloadLength=buffer.getInt(12);
+        if(payloadLength<12||payloadLength!=buffer.limit()-HEADER_LENGTH)
+            throw new IndexFileException("快照文件长度不正确！");
+
+        ByteBuffer payload=buffer.duplicate();
+        payload.position(HEADER_LENGTH);
+        CRC32 crc32=new CRC32();
+        crc32.update(payload);
+        if((int)crc32.getValue()!=buffer.getInt(8))
+            throw new IndexFileException("快照文件效验失败！");
+        return buffer;
+    }
+
+    /**
+     * 读取快照中的全部数据或者一个省
+     * <p>
+     * 读取全部时int列直接使用buffer中的数据，并解码整个名称池。
+     * 只读取一个省时把这个省的数据复制到堆内，名称池只解码这个省用到的名称，
+     * 所以按省读取时占用的堆内存只与读取的省有关，整个快照只在映射(或堆外)的buffer中。
+     * @param buffer {@link #open(File)}或{@link #open(URL)}返回的快照
+     * @param province 省(前两位)，小于0时为全部
+     * @return RegionTable
+     */
+    static RegionTable read(ByteBuffer buffer,int province){
+        buffer=buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(HEADER_LENGTH);
+        int codes=buffer.getInt(),entries=buffer.getInt(),names=buffer.getInt();
+        if(codes<0||entries<0||names<0||(codes*2L+1+entries*4L)*4>buffer.remaining())
+            throw new IndexFileException("快照文件长度不正确！");
+        IntBuffer codeColumn=column(buffer,codes);
+        IntBuffer offsetColumn=column(buffer,codes+1);
+        IntBuffer versionColumn=column(buffer,entries);
+        IntBuffer nameColumn=column(buffer,entries);
+        IntBuffer provinceColumn=column(buffer,entries);
+        IntBuffer cityColumn=column(buffer,entries);
+
+        if(province<0){
+            for(int entry=0;entry<entries;entry++){
+                if(provinceColumn.get(entry)>=names||cityColumn.get(entry)>=names)
+                    throw new IndexFileException("快照文件中的名称下标不正确！");
+            }
+            int[] indexes=new int[names];
+            for(int i=0;i<names;i++)
+                indexes[i]=i;
+            return new RegionTable(codeColumn,offsetColumn,versionColumn,nameColumn,provinceColumn,cityColumn,
+                    readNames(buffer,indexes,names));
+        }
+
+        //先复制这个省的int列，名称下标还是整个名称池的
+        RegionTable table=new RegionTable(codeColumn,offsetColumn,versionColumn,nameColumn,provinceColumn,cityColumn,
+                new String[0]).province(province);
+        int[][] columns=new int[3][table.entries()];
+        for(int entry=0;entry<table.entries();entry++){
+            columns[0][entry]=table.nameIndex(entry);
+            columns[1][entry]=table.provinceIndex(entry);
+            columns[2][entry]=table.cityIndex(entry);
+        }
+        //用到的名称按原来的顺序重新编号，没有用到的为-1
+        int[] indexes=new int[names];
+        Arrays.fill(indexes,-1);
+        for(int[] column:columns){
+            for(int nameIndex:column){
+                if(nameIndex>=names)
+                    throw new IndexFileException("快照文件中的名称下标不正确！");
+                if(nameIndex>=0)
+                    indexes[nameIndex]=0;
+            }
+        }
+        int used=0;
+        for(int i=0;i<names;i++){
+            if(indexes[i]==0)
+                indexes[i]=used++;
+            else
+                indexes[i]=-1;
+        }
+        for(int[] column:columns){
+            for(int entry=0;entry<column.length;entry++){
+                if(column[entry]>=0)
+                    column[entry]=indexes[column[entry]];
+            }
+        }
+        IntBuffer tableCodes=IntBuffer.allocate(table.size());
+        IntBuffer tableOffsets=IntBuffer.allocate(table.size()+1);
+        IntBuffer tableVersions=IntBuffer.allocate(table.entries());
+        for(int position=0;position<table.size();position++){
+            tableCodes.put(position,table.code(position));
+            tableOffsets.put(position,table.from(position));
+        }
+        tableOffsets.put(table.size(),table.entries());
+        for(int entry=0;entry<table.entries();entry++)
+            tableVersions.put(entry,table.version(entry));
+        return new RegionTable(tableCodes,tableOffsets,tableVersions,IntBuffer.wrap(columns[0]),IntBuffer.wrap(columns[1]),
+                IntBuffer.wrap(columns[2]),readNames(buffer,indexes,used));
+    }
+
+    /**
+     * 解码名称池中用到的名称
+     * @param buffer 位置在名称池的开始
+     * @param indexes 每个名称在新的名称池中的下标，没有用到的为-1，只跳过不解码
+     * @param used 新的名称池的长度
+     */
+    private static String[] readNames(ByteBuffer buffer,int[] indexes,int used){
+        String[] namePool=new String[used];
+        for(int index:indexes){
+            int length=buffer.getShort()&0xFFFF;
+            if(index<0){
+                buffer.position(buffer.position()+length);
+                continue;
+            }
+            byte[] bytes=new byte[length];
+            buffer.get(bytes);
+            namePool[index]=new String(bytes,StandardCharsets.UTF_8);
+        }
+        return namePool;
+    }
+
+    private static IntBuffer column(ByteBuffer buffer,int length){
+        ByteBuffer slice=buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        slice.limit(length*4);
+        buffer.position(buffer.position()+length*4);
+        return slice.asIntBuffer();
+    }
+}
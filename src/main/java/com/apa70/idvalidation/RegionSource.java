@@ -0,0 +1,179 @@
+package com.apa70.idvalidation;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.*;
+
+/**
+ * 某个自定义目录的索引
+ * <p>
+ * 第一次使用时加载，之后一直使用同一个索引，验证时不会再读取文件。
+ * 开始监视后定时检查目录下的code.json与code.bin，发生变化并且两次检查之间没有再变化(已经写完)时，
+ * 在后台线程创建新的索引后整个替换，正在进行的验证继续使用原来的索引。新的数据无法读取(如写了一半)时继续使用原来的索引，
+ * 并通过{@link ValidationListener#onIndexLoadFailure(String, Exception)}通知加载的监听。
+ */
+final class RegionSource {
+
+    /** 所有监视共用的后台线程 */
+    private static volatile ScheduledExecutorService scheduler;
+
+    /** 自定义目录 */
+    private final String path;
+    /** administrative-code-data目录 */
+    private final File dataPath;
+    /** 当前的索引 */
+    private volatile RegionIndex index;
+    /** 当前的索引对应的文件状态 */
+    private long[] loadedSignature;
+    /** 上一次检查到的变化，下一次检查时没有再变化才重新加载 */
+    private long[] pendingSignature;
+    /** 加载失败的文件状态，不再重复加载 */
+    private long[] failedSignature;
+    /** 定时检查的任务 */
+    private ScheduledFuture<?> watching;
+
+    RegionSource(String path,File dataPath){
+        this.path=path;
+        this.dataPath=dataPath;
+    }
+
+    /**
+     * 当前的索引
+     * @return RegionIndex
+     * @throws IOException
+     */
+    RegionIndex get() throws IOException {
+        RegionIndex index=this.index;
+        if(index!=null)
+            return index;
+
+        synchronized (this){
+            if(this.index==null){
+                long start=System.nanoTime();
+                long[] signature=signature();
+                this.index=load();
+                this.loadedSignature=signature;
+                RegionIndex.fireLoad(path,start,false);
+            }
+            return this.index;
+        }
+    }
+
+    /**
+     * 是否已经加载过
+     * @return bool
+     */
+    boolean isLoaded(){
+        return index!=null;
+    }
+
+    /**
+     * 立即重新加载
+     * @return RegionIndex 新的索引
+     * @throws IOException
+     */
+    synchronized RegionIndex reload() throws IOException {
+        long start=System.nanoTime();
+        long[] signature=signature();
+        RegionIndex index=load();
+        this.index=index;
+        this.loadedSignature=signature;
+        this.pendingSignature=null;
+        this.failedSignature=null;
+        RegionIndex.fireLoad(path,start,true);
+        return index;
+    }
+
+    /**
+     * 开始监视
+     * @param interval 检查的间隔
+     * @param unit 间隔的单位
+     */
+    synchronized void watch(long interval,TimeUnit unit){
+        if(watching!=null)
+            watching.cancel(false);
+        watching=scheduler().scheduleWithFixedDelay(this::poll,interval,interval,unit);
+    }
+
+    /**
+     * 停止监视
+     */
+    synchronized void unwatch(){
+        if(watching!=null){
+            watching.cancel(false);
+            watching=null;
+        }
+    }
+
+    /**
+     * 检查一次文件是否变化
+     */
+    synchronized void poll(){
+        long[] signature=signature();
+        if(Arrays.equals(signature,loadedSignature)||Arrays.equals(signature,failedSignature)){
+            pendingSignature=null;
+            return;
+        }
+        //等到文件不再变化
+        if(!Arrays.equals(signature,pendingSignature)){
+            pendingSignature=signature;
+            return;
+        }
+
+        this.pendingSignature=null;
+        long start=System.nanoTime();
+        try {
+            this.index=load();
+        } catch (IOException|RuntimeException e) {
+            //继续使用原来的索引
+            this.failedSignature=signature;
+            RegionIndex.fireLoadFailure(path,e);
+            return;
+        }
+        this.loadedSignature=signature;
+        this.failedSignature=null;
+        //已经替换了索引，监听抛出的异常不算加载失败
+        RegionIndex.fireLoad(path,start,true);
+    }
+
+    /**
+     * 加载自带的数据与自定义目录的数据合并后的索引，目录不存在时只使用自带的数据
+     */
+    private RegionIndex load() throws IOException {
+        RegionIndex resources=RegionIndex.getResources();
+        if(!new File(path).exists())
+            return resources;
+        if(RegionIndex.isLazy())
+            return new RegionIndex(new RegionSegments(dataPath));
+        //只保留一段时间的版本时，自带的索引已经去掉了其他版本，要用完整的数据合并后再去掉
+        RegionTable base=RegionIndex.hasWindow()?RegionIndex.loadResourcesTable(-1):resources.getTable();
+        return new RegionIndex(RegionTable.merge(base,RegionIndex.loadTable(dataPath,-1)));
+    }
+
+    /**
+     * 目录下文件的状态：code.json与code.bin的修改时间与大小
+     */
+    private long[] signature(){
+        File json=new File(dataPath,"code.json");
+        File snapshot=new File(dataPath,RegionSnapshot.FILE_NAME);
+        return new long[]{json.lastModified(),json.length(),snapshot.lastModified(),snapshot.length()};
+    }
+
+    private static ScheduledExecutorService scheduler(){
+        ScheduledExecutorService scheduler=RegionSource.scheduler;
+        if(scheduler!=null)
+            return scheduler;
+
+        synchronized (RegionSource.class){
+            if(RegionSource.scheduler==null){
+                RegionSource.scheduler=Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread=new Thread(runnable,"idvalidation-region-watcher");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+            return RegionSource.scheduler;
+        }
+    }
+}
@@ -0,0 +1,574 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.RegionNames;
+import com.apa70.idvalidation.exception.IndexFileException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.*;
+
+/**
+ * 紧凑的地区代码表
+ * <p>
+ * 行政代码与版本都保存为int：codes为排好序的行政代码，offsets[i]到offsets[i+1]为第i个行政代码的所有版本，
+ * versions为排好序的版本，names为名称在名称池中的下标，相同的名称在名称池中只保存一份。
+ * 查找某个行政代码或者某个版本都是二分查找。
+ * <p>
+ * 创建时就按照省市区的规则为每个版本算好所在省级与市级的名称(provinces、cities)，
+ * 查找时只需要找到行政代码与最近的版本，不需要再分别查找省级与市级。
+ * <p>
+ * int列可以在堆内，也可以在只读的direct或者mmap的ByteBuffer中。创建后不可修改，可以在多线程下共用。
+ * 验证结果只保存版本的下标，需要名称时通过{@link RegionNames}从这里查找。
+ */
+final class RegionTable implements RegionNames {
+
+    /** 没有市级代码并且不是直辖市时的市级名称 */
+    static final String PROVINCE_COUNTY="省直辖县";
+
+    /** 行政代码，从小到大 */
+    private final IntBuffer codes;
+    /** 每个行政代码的版本在versions中的开始位置，最后多一个结束位置 */
+    private final IntBuffer offsets;
+    /** 版本，同一个行政代码内从小到大 */
+    private final IntBuffer versions;
+    /** 名称在名称池中的下标 */
+    private final IntBuffer names;
+    /** 同一版本的省级名称在名称池中的下标，省级或市级没有这个版本时为-1 */
+    private final IntBuffer provinces;
+    /** 同一版本的市级名称在名称池中的下标，省级或市级没有这个版本时为-1 */
+    private final IntBuffer cities;
+    /** 名称池 */
+    private final String[] namePool;
+
+    RegionTable(IntBuffer codes,IntBuffer offsets,IntBuffer versions,IntBuffer names,IntBuffer provinces,IntBuffer cities,String[] namePool){
+        if(offsets.limit()!=codes.limit()+1||names.limit()!=versions.limit()
+                ||provinces.limit()!=versions.limit()||cities.limit()!=versions.limit())
+            throw new IndexFileException("地区代码表的长度不一致！");
+        this.codes=codes;
+        this.offsets=offsets;
+        this.versions=versions;
+        this.names=names;
+        this.provinces=provinces;
+        this.cities=cities;
+        this.namePool=namePool;
+    }
+
+    /**
+     * 创建地区代码表，同时算好每个版本的省级与市级
+     * @param codes 行政代码
+     * @param offsets 每个行政代码的版本的开始位置
+     * @param versions 版本
+     * @param names 名称在名称池中的下标
+     * @param namePool 名称池
+     * @return RegionTable
+     */
+    static RegionTable of(IntBuffer codes,IntBuffer offsets,IntBuffer versions,IntBuffer names,String[] namePool){
+        int entries=versions.limit();
+        int[] provinces=new int[entries];
+        int[] cities=new int[entries];
+        //名称池中没有“省直辖县”时在最后加上
+        int provinceCounty=Arrays.asList(namePool).indexOf(PROVINCE_COUNTY);
+        boolean provinceCountyUsed=false;
+        if(provinceCounty<0)
+            provinceCounty=namePool.length;
+
+        RegionTable table=new RegionTable(codes,offsets,versions,names,IntBuffer.wrap(provinces),IntBuffer.wrap(cities),namePool);
+        for(int position=0;position<table.size();position++){
+            int code=table.code(position);
+            int provincePosition=table.find(code/10000*10000);
+            int cityPosition=table.find(code/100*100);
+            for(int entry=table.from(position);entry<table.to(position);entry++){
+                int version=table.version(entry);
+                provinces[entry]=cities[entry]=-1;
+                //省级必须有同一个版本
+                int provinceEntry=provincePosition<0?-1:table.exact(provincePosition,version);
+                if(provinceEntry<0)
+                    continue;
+                int province=table.nameIndex(provinceEntry);
+                int city;
+                if(cityPosition<0){
+                    //市级单位不存在有两种情况,分别为省直辖县或者直辖市
+                    if(namePool[province].endsWith("市")){
+                        city=province;
+                    }else{
+                        city=provinceCounty;
+                        provinceCountyUsed=true;
+                    }
+                }else{
+                    //市级存在时也必须有同一个版本
+                    int cityEntry=table.exact(cityPosition,version);
+                    if(cityEntry<0)
+                        continue;
+                    city=table.nameIndex(cityEntry);
+                }
+                provinces[entry]=province;
+                cities[entry]=city;
+            }
+        }
+        if(provinceCountyUsed&&provinceCounty==namePool.length){
+            namePool=Arrays.copyOf(namePool,namePool.length+1);
+            namePool[provinceCounty]=PROVINCE_COUNTY;
+        }
+        return new RegionTable(codes,offsets,versions,names,IntBuffer.wrap(provinces),IntBuffer.wrap(cities),namePool);
+    }
+
+    /**
+     * 行政代码的数量
+     * @return int
+     */
+    int size(){
+        return codes.limit();
+    }
+
+    /**
+     * 所有行政代码的所有版本的数量
+     * @return int
+     */
+    int entries(){
+        return versions.limit();
+    }
+
+    /**
+     * 第position个行政代码
+     * @param position 位置
+     * @return int 行政代码
+     */
+    int code(int position){
+        return codes.get(position);
+    }
+
+    /**
+     * 查找行政代码的位置
+     * @param code 行政代码
+     * @return int 位置，没有时为-1
+     */
+    int find(int code){
+        int low=0,high=codes.limit()-1;
+        while(low<=high){
+            int middle=(low+high)>>>1;
+            int value=codes.get(middle);
+            if(value<code)
+                low=middle+1;
+            else if(value>code)
+                high=middle-1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * 第position个行政代码的第一个版本的下标
+     * @param position 位置
+     * @return int
+     */
+    int from(int position){
+        return offsets.get(position);
+    }
+
+    /**
+     * 第position个行政代码的最后一个版本的下一个下标
+     * @param position 位置
+     * @return int
+     */
+    int to(int position){
+        return offsets.get(position+1);
+    }
+
+    /**
+     * 找出离出生年月最近的版本：优先使用出生之前(包括同一个月)最近的版本，没有再使用出生之后最近的版本
+     * @param position 行政代码的位置
+     * @param birthday 生日精准到“月”如 201912
+     * @return int 版本的下标，没有版本时为-1
+     */
+    int nearest(int position,int birthday){
+        int from=offsets.get(position),to=offsets.get(position+1);
+        if(from==to)
+            return -1;
+        //第一个大于birthday的版本
+        int low=from,high=to;
+        while(low<high){
+            int middle=(low+high)>>>1;
+            if(versions.get(middle)<=birthday)
+                low=middle+1;
+            else
+                high=middle;
+        }
+        return low>from?low-1:low;
+    }
+
+    /**
+     * 查找某个版本
+     * @param position 行政代码的位置
+     * @param version 版本
+     * @return int 版本的下标，没有时为-1
+     */
+    int exact(int position,int version){
+        int low=offsets.get(position),high=offsets.get(position+1)-1;
+        while(low<=high){
+            int middle=(low+high)>>>1;
+            int value=versions.get(middle);
+            if(value<version)
+                low=middle+1;
+            else if(value>version)
+                high=middle-1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    /**
+     * 版本
+     * @param entry 版本的下标
+     * @return int 如 201900
+     */
+    int version(int entry){
+        return versions.get(entry);
+    }
+
+    /**
+     * 名称
+     * @param entry 版本的下标
+     * @return String
+     */
+    String name(int entry){
+        return namePool[names.get(entry)];
+    }
+
+    /**
+     * 名称在名称池中的下标
+     * @param entry 版本的下标
+     * @return int
+     */
+    int nameIndex(int entry){
+        return names.get(entry);
+    }
+
+    /**
+     * 同一版本的省级名称在名称池中的下标
+     * @param entry 版本的下标
+     * @return int 省级或市级没有这个版本时为-1
+     */
+    int provinceIndex(int entry){
+        return provinces.get(entry);
+    }
+
+    /**
+     * 同一版本的市级名称在名称池中的下标
+     * @param entry 版本的下标
+     * @return int 省级或市级没有这个版本时为-1
+     */
+    int cityIndex(int entry){
+        return cities.get(entry);
+    }
+
+    @Override
+    public String getProvince(int entry){
+        return namePool[provinces.get(entry)];
+    }
+
+    @Override
+    public String getCity(int entry){
+        return namePool[cities.get(entry)];
+    }
+
+    @Override
+    public String getCounty(int entry){
+        return name(entry);
+    }
+
+    /**
+     * 名称池，不要修改
+     * @return String[]
+     */
+    String[] namePool(){
+        return namePool;
+    }
+
+    /**
+     * 是否在direct(堆外)内存中
+     * @return bool
+     */
+    boolean isDirect(){
+        return codes.isDirect();
+    }
+
+    /**
+     * 复制到只读的direct(堆外)内存中
+     * @return RegionTable
+     */
+    RegionTable toDirect(){
+        IntBuffer[] columns={codes,offsets,versions,names,provinces,cities};
+        int ints=0;
+        for(IntBuffer column:columns)
+            ints+=column.limit();
+        ByteBuffer buffer=ByteBuffer.allocateDirect(ints*4).order(ByteOrder.nativeOrder());
+        IntBuffer[] copies=new IntBuffer[columns.length];
+        for(int i=0;i<columns.length;i++){
+            IntBuffer column=columns[i].duplicate();
+            column.rewind();
+            ByteBuffer slice=buffer.slice().order(ByteOrder.nativeOrder());
+            slice.limit(column.limit()*4);
+            slice.asIntBuffer().put(column);
+            copies[i]=slice.asReadOnlyBuffer().order(ByteOrder.nativeOrder()).asIntBuffer();
+            buffer.position(buffer.position()+column.limit()*4);
+        }
+        return new RegionTable(copies[0],copies[1],copies[2],copies[3],copies[4],copies[5],namePool);
+    }
+
+    /**
+     * 只保留一个省(前两位相同)的行政代码，省级与市级已经算好，不需要重新计算
+     * @param province 省，如 37
+     * @return RegionTable 新的表，在堆内，与这个表共用名称池
+     */
+    RegionTable province(int province){
+        return copy(lowerBound(province*10000),lowerBound((province+1)*10000),Integer.MIN_VALUE,Integer.MAX_VALUE);
+    }
+
+    /**
+     * 只保留出生年月在from到to之间时会使用的版本
+     * <p>
+     * 除了这之间的版本，每个行政代码还保留from之前最近的一个版本，所有版本都晚于to时保留最早的一个，
+     * 所以出生年月在这之间时{@link #nearest(int, int)}的结果与原来的表相同。
+     * 省级与市级是在原来的表中算好的，不需要重新计算。
+     * @param from 最早的出生年月，如 195001
+     * @param to 最晚的出生年月，如 201012
+     * @return RegionTable 新的表，在堆内，与这个表共用名称池
+     */
+    RegionTable window(int from,int to){
+        return copy(0,size(),from,to);
+    }
+
+    /**
+     * 复制第fromPosition到toPosition个行政代码，只保留出生年月在fromVersion到toVersion之间时会使用的版本
+     */
+    private RegionTable copy(int fromPosition,int toPosition,int fromVersion,int toVersion){
+        int size=toPosition-fromPosition;
+        int[] codes=new int[size];
+        int[] offsets=new int[size+1];
+        int[] versions=new int[from(toPosition)-from(fromPosition)];
+        int[] names=new int[versions.length];
+        int[] provinces=new int[versions.length];
+        int[] cities=new int[versions.length];
+        int entry=0;
+        for(int i=0;i<size;i++){
+            int position=fromPosition+i;
+            codes[i]=code(position);
+            offsets[i]=entry;
+            int from=from(position),to=to(position);
+            //from之前最近的版本，没有时为最早的版本
+            int first=from;
+            while(first+1<to&&version(first+1)<=fromVersion)
+                first++;
+            for(int e=first;e<to&&(e==first||version(e)<=toVersion);e++,entry++){
+                versions[entry]=version(e);
+                names[entry]=nameIndex(e);
+                provinces[entry]=provinceIndex(e);
+                cities[entry]=cityIndex(e);
+            }
+        }
+        offsets[size]=entry;
+        return new RegionTable(IntBuffer.wrap(codes),IntBuffer.wrap(offsets),IntBuffer.wrap(Arrays.copyOf(versions,entry)),
+                IntBuffer.wrap(Arrays.copyOf(names,entry)),IntBuffer.wrap(Arrays.copyOf(provinces,entry)),
+                IntBuffer.wrap(Arrays.copyOf(cities,entry)),namePool);
+    }
+
+    /**
+     * 第一个不小于code的行政代码的位置
+     */
+    private int lowerBound(int code){
+        int low=0,high=codes.limit();
+        while(low<high){
+            int middle=(low+high)>>>1;
+            if(codes.get(middle)<code)
+                low=middle+1;
+            else
+                high=middle;
+        }
+        return low;
+    }
+
+    /**
+     * 合并两个表，相同的行政代码与版本使用overlay的，两个表都已排好序所以只需要顺序合并一遍，
+     * 合并后重新计算省级与市级
+     * @param base 基础的表
+     * @param overlay 覆盖的表
+     * @return RegionTable 新的表，在堆内
+     */
+    static RegionTable merge(RegionTable base,RegionTable overlay){
+        //名称池，base的下标保持不变
+        Map<String,Integer> nameIndexes=new HashMap<>();
+        List<String> namePool=new ArrayList<>(Arrays.asList(base.namePool));
+        for(int i=0;i<namePool.size();i++)
+            nameIndexes.put(namePool.get(i),i);
+        int[] overlayNames=new int[overlay.namePool.length];
+        for(int i=0;i<overlayNames.length;i++){
+            Integer nameIndex=nameIndexes.get(overlay.namePool[i]);
+            if(nameIndex==null){
+                nameIndex=namePool.size();
+                nameIndexes.put(overlay.namePool[i],nameIndex);
+                namePool.add(overlay.namePool[i]);
+            }
+            overlayNames[i]=nameIndex;
+        }
+
+        int[] codes=new int[base.size()+overlay.size()];
+        int[] offsets=new int[codes.length+1];
+        int[] versions=new int[base.entries()+overlay.entries()];
+        int[] names=new int[versions.length];
+        int size=0,entry=0,b=0,o=0;
+        while(b<base.size()||o<overlay.size()){
+            int baseCode=b<base.size()?base.code(b):Integer.MAX_VALUE;
+            int overlayCode=o<overlay.size()?overlay.code(o):Integer.MAX_VALUE;
+            offsets[size]=entry;
+            if(baseCode<overlayCode){
+                codes[size++]=baseCode;
+                for(int e=base.from(b);e<base.to(b);e++,entry++){
+                    versions[entry]=base.version(e);
+                    names[entry]=base.nameIndex(e);
+                }
+                b++;
+                continue;
+            }
+            codes[size++]=overlayCode;
+            int be=baseCode==overlayCode?base.from(b):0,bTo=baseCode==overlayCode?base.to(b):0;
+            int oe=overlay.from(o),oTo=overlay.to(o);
+            while(be<bTo||oe<oTo){
+                int baseVersion=be<bTo?base.version(be):Integer.MAX_VALUE;
+                int overlayVersion=oe<oTo?overlay.version(oe):Integer.MAX_VALUE;
+                if(baseVersion<overlayVersion){
+                    versions[entry]=baseVersion;
+                    names[entry++]=base.nameIndex(be++);
+                }else{
+                    versions[entry]=overlayVersion;
+                    names[entry++]=overlayNames[overlay.nameIndex(oe++)];
+                    if(baseVersion==overlayVersion)
+                        be++;
+                }
+            }
+            if(baseCode==overlayCode)
+                b++;
+            o++;
+        }
+        offsets[size]=entry;
+
+        return of(IntBuffer.wrap(Arrays.copyOf(codes,size)),IntBuffer.wrap(Arrays.copyOf(offsets,size+1)),
+                IntBuffer.wrap(Arrays.copyOf(versions,entry)),IntBuffer.wrap(Arrays.copyOf(names,entry)),
+                namePool.toArray(new String[0]));
+    }
+
+    /**
+     * 创建RegionTable，相同的行政代码与版本后放入的覆盖先放入的
+     */
+    static final class Builder {
+
+        /** 行政代码 -> (版本 -> 名称) */
+        private final Map<Integer,TreeMap<Integer,String>> codeMap=new HashMap<>();
+
+        /**
+         * 放入一个行政代码的一个版本
+         * @param code 行政代码
+         * @param version 版本
+         * @param name 名称
+         * @return Builder
+         */
+        Builder put(int code,int version,String name){
+            TreeMap<Integer,String> dateMap=codeMap.get(code);
+            if(dateMap==null){
+                dateMap=new TreeMap<>();
+                codeMap.put(code,dateMap);
+            }
+            dateMap.put(version,name);
+            return this;
+        }
+
+        /**
+         * 放入json格式的数据
+         * @param jsonMap 行政代码 -> (版本 -> 名称)
+         * @return Builder
+         */
+        Builder putAll(Map<String,Map<String,String>> jsonMap){
+            for(Map.Entry<String,Map<String,String>> entry:jsonMap.entrySet()){
+                int code=parse(entry.getKey());
+                for(Map.Entry<String,String> dateEntry:entry.getValue().entrySet())
+                    put(code,parse(dateEntry.getKey()),dateEntry.getValue());
+            }
+            return this;
+        }
+
+        /**
+         * 放入code.json的数据，两种格式都可以，压缩格式的版本范围展开为每个版本
+         * @param file code.json的内容
+         * @return Builder
+         */
+        Builder putAll(CodeFile file){
+            for(Map.Entry<String,Map<String,String>> entry:file.getCodes().entrySet()){
+                int code=parse(entry.getKey());
+                for(Map.Entry<String,String> range:entry.getValue().entrySet()){
+                    for(int version:file.versions(range.getKey()))
+                        put(code,version,range.getValue());
+                }
+            }
+            return this;
+        }
+
+        /**
+         * 放入另一个表的全部数据
+         * @param table 表
+         * @return Builder
+         */
+        Builder putAll(RegionTable table){
+            for(int position=0;position<table.size();position++){
+                int code=table.code(position);
+                for(int entry=table.from(position);entry<table.to(position);entry++)
+                    put(code,table.version(entry),table.name(entry));
+            }
+            return this;
+        }
+
+        RegionTable build(){
+            int[] codes=new int[codeMap.size()];
+            int i=0,entries=0;
+            for(Map.Entry<Integer,TreeMap<Integer,String>> entry:codeMap.entrySet()){
+                codes[i++]=entry.getKey();
+                entries+=entry.getValue().size();
+            }
+            Arrays.sort(codes);
+
+            int[] offsets=new int[codes.length+1];
+            int[] versions=new int[entries];
+            int[] names=new int[entries];
+            Map<String,Integer> nameIndexes=new HashMap<>();
+            List<String> namePool=new ArrayList<>();
+            int entry=0;
+            for(i=0;i<codes.length;i++){
+                offsets[i]=entry;
+                for(Map.Entry<Integer,String> dateEntry:codeMap.get(codes[i]).entrySet()){
+                    Integer nameIndex=nameIndexes.get(dateEntry.getValue());
+                    if(nameIndex==null){
+                        nameIndex=namePool.size();
+                        nameIndexes.put(dateEntry.getValue(),nameIndex);
+                        namePool.add(dateEntry.getValue());
+                    }
+                    versions[entry]=dateEntry.getKey();
+                    names[entry]=nameIndex;
+                    entry++;
+                }
+            }
+            offsets[codes.length]=entry;
+
+            return of(IntBuffer.wrap(codes),IntBuffer.wrap(offsets),IntBuffer.wrap(versions),IntBuffer.wrap(names),
+                    namePool.toArray(new String[0]));
+        }
+
+        private static int parse(String number){
+            try {
+                return Integer.parseInt(number);
+            }catch (NumberFormatException e){
+                throw new IndexFileException("索引文件中的行政代码或版本不是数字："+number);
+            }
+        }
+    }
+}
@@ -0,0 +1,322 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.CachePolicy;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 有上限的验证结果缓存
+ * <p>
+ * 通过{@link IDValidator#IDValidator(String, ValidationListener, ResultCache)}使用，
+ * 同一个号码再次验证时不需要再解析生日与查找地区代码。
+ * 只缓存通过了长度、格式与第18位效验的号码，key为前17位组成的long，不保存号码的字符串。
+ * <p>
+ * 缓存分为多段，每段单独加锁。每条缓存记录了当时使用的地区代码索引，
+ * 地区代码重新加载后索引不同，原来的缓存自动失效。
+ */
+public final class ResultCache {
+
+    /** 最多的段数 */
+    private static final int MAX_SEGMENTS=16;
+
+    /** 最多缓存的号码数量 */
+    private final int maximumSize;
+    /** 淘汰策略 */
+    private final CachePolicy policy;
+    /** 写入后多久过期(纳秒)，0为不过期 */
+    private final long expireNanos;
+    private final Segment[] segments;
+    private final LongAdder hits=new LongAdder();
+    private final LongAdder misses=new LongAdder();
+    private final LongAdder evictions=new LongAdder();
+
+    /**
+     * LRU并且不过期
+     * @param maximumSize 最多缓存的号码数量
+     */
+    public ResultCache(int maximumSize){
+        this(maximumSize,CachePolicy.LRU,0,TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @param maximumSize 最多缓存的号码数量
+     * @param policy 淘汰策略
+     * @param expire 写入后多久过期，0为不过期
+     * @param unit 过期时间的单位
+     */
+    public ResultCache(int maximumSize,CachePolicy policy,long expire,TimeUnit unit){
+        if(maximumSize<=0)
+            throw new IllegalArgumentException("maximumSize必须大于0！");
+        if(policy==null)
+            throw new IllegalArgumentException("policy不能为null！");
+        if(expire<0)
+            throw new IllegalArgumentException("expire不能小于0！");
+        this.maximumSize=maximumSize;
+        this.policy=policy;
+        this.expireNanos=unit.toNanos(expire);
+
+        int count=Math.min(MAX_SEGMENTS,Integer.highestOneBit(maximumSize));
+        int capacity=(maximumSize+count-1)/count;
+        this.segments=new Segment[count];
+        for(int i=0;i<count;i++)
+            segments[i]=new Segment(capacity);
+    }
+
+    /**
+     * 号码的key：前17位组成的long，第18位由前17位决定所以不需要
+     * @param id 已经通过效验的身份证号码
+     * @return long
+     */
+    static long key(CharSequence id){
+        long key=0;
+        for(int i=0;i<17;i++)
+            key=key*10+(id.charAt(i)-'0');
+        return key;
+    }
+
+    /**
+     * 查找缓存
+     * @param key 号码的key
+     * @param index 当前的地区代码索引
+     * @return Entry 没有、已过期或者不是用这个索引验证的时为null
+     */
+    Entry get(long key,RegionIndex index){
+        Entry entry=segment(key).get(key,index);
+        if(entry==null)
+            misses.increment();
+        else
+            hits.increment();
+        return entry;
+    }
+
+    /**
+     * 放入缓存
+     * @param key 号码的key
+     * @param index 验证时使用的地区代码索引
+     * @param birthday 出生日期，yyyyMMdd
+     * @param entry 版本在地区代码表中的下标，没有找到相应的省市区时为-1
+     */
+    void put(long key,RegionIndex index,int birthday,int entry){
+        long expireAt=expireNanos>0?System.nanoTime()+expireNanos:0;
+        segment(key).put(key,new Entry(index,birthday,entry,expireAt));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll(){
+        for(Segment segment:segments)
+            segment.clear();
+    }
+
+    /**
+     * 当前缓存的号码数量，包括已经过期还没有清除的
+     * @return int
+     */
+    public int size(){
+        int size=0;
+        for(Segment segment:segments)
+            size+=segment.size();
+        return size;
+    }
+
+    public long getHitCount(){
+        return hits.sum();
+    }
+
+    public long getMissCount(){
+        return misses.sum();
+    }
+
+    /**
+     * 因为超过上限被淘汰的数量
+     * @return long
+     */
+    public long getEvictionCount(){
+        return evictions.sum();
+    }
+
+    /**
+     * 命中率
+     * @return double 没有查找过时为0
+     */
+    public double getHitRate(){
+        long hits=getHitCount(),total=hits+getMissCount();
+        return total==0?0:(double)hits/total;
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public CachePolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * 清空缓存与统计
+     */
+    public void reset(){
+        invalidateAll();
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "ResultCache{size="+size()+", hits="+getHitCount()+", misses="+getMissCount()+", evictions="+getEvictionCount()+"}";
+    }
+
+    private Segment segment(long key){
+        return segments[mix(key)&(segments.length-1)];
+    }
+
+    private static int mix(long key){
+        key*=0x9E3779B97F4A7C15L;
+        return (int)(key^(key>>>32));
+    }
+
+    /**
+     * 一条缓存
+     */
+    static final class Entry {
+
+        private final RegionIndex index;
+        private final int birthday;
+        private final int entry;
+        private final long expireAt;
+
+        Entry(RegionIndex index,int birthday,int entry,long expireAt){
+            this.index=index;
+            this.birthday=birthday;
+            this.entry=entry;
+            this.expireAt=expireAt;
+        }
+
+        int getBirthday(){
+            return birthday;
+        }
+
+        /**
+         * @return int 版本在地区代码表中的下标，没有找到相应的省市区时为-1
+         */
+        int getEntry(){
+            return entry;
+        }
+    }
+
+    /**
+     * 一段缓存，按访问顺序排列的LinkedHashMap，最前面的最久没有使用
+     */
+    private final class Segment {
+
+        private final int capacity;
+        private final LinkedHashMap<Long,Entry> map;
+        /** 只在TINY_LFU时使用 */
+        private final FrequencySketch sketch;
+
+        Segment(int capacity){
+            this.capacity=capacity;
+            this.map=new LinkedHashMap<>(Math.min(capacity,1<<16)*4/3+1,0.75f,true);
+            this.sketch=policy==CachePolicy.TINY_LFU?new FrequencySketch(capacity):null;
+        }
+
+        synchronized Entry get(long key,RegionIndex index){
+            if(sketch!=null)
+                sketch.increment(key);
+            Entry entry=map.get(key);
+            if(entry==null)
+                return null;
+            if(entry.index!=index||entry.expireAt!=0&&entry.expireAt-System.nanoTime()<=0){
+                map.remove(key);
+                return null;
+            }
+            return entry;
+        }
+
+        synchronized void put(long key,Entry entry){
+            if(map.containsKey(key)||map.size()<capacity){
+                map.put(key,entry);
+                return;
+            }
+
+            Iterator<Map.Entry<Long,Entry>> iterator=map.entrySet().iterator();
+            Map.Entry<Long,Entry> eldest=iterator.next();
+            //新的号码不比要淘汰的更常用时不放入
+            if(sketch!=null&&sketch.frequency(key)<=sketch.frequency(eldest.getKey()))
+                return;
+            iterator.remove();
+            evictions.increment();
+            map.put(key,entry);
+        }
+
+        synchronized void clear(){
+            map.clear();
+        }
+
+        synchronized int size(){
+            return map.size();
+        }
+    }
+
+    /**
+     * 估算号码最近使用次数的Count-Min Sketch，每个计数器4位最大15，
+     * 记录的次数达到容量的10倍后所有计数器减半，旧的频率逐渐衰减
+     */
+    private static final class FrequencySketch {
+
+        private static final long[] SEEDS={0xC3A5C85C97CB3127L,0xB492B66FBE98F273L,0x9AE16A3B2F90404FL,0xCBF29CE484222325L};
+
+        private final long[] table;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity){
+            int length=Integer.highestOneBit(Math.max(8,Math.min(capacity,1<<24))-1)<<1;
+            this.table=new long[length];
+            this.sampleSize=Math.max(capacity,8)*10;
+        }
+
+        void increment(long key){
+            boolean added=false;
+            for(int i=0;i<SEEDS.length;i++){
+                long hash=hash(key,i);
+                int index=(int)(hash>>>32)&(table.length-1);
+                int shift=((int)hash&15)<<2;
+                if(((table[index]>>>shift)&15)<15){
+                    table[index]+=1L<<shift;
+                    added=true;
+                }
+            }
+            if(added&&++additions>=sampleSize)
+                halve();
+        }
+
+        int frequency(long key){
+            int frequency=15;
+            for(int i=0;i<SEEDS.length;i++){
+                long hash=hash(key,i);
+                int index=(int)(hash>>>32)&(table.length-1);
+                int shift=((int)hash&15)<<2;
+                frequency=Math.min(frequency,(int)((table[index]>>>shift)&15));
+            }
+            return frequency;
+        }
+
+        private void halve(){
+            for(int i=0;i<table.length;i++)
+                table[i]=(table[i]>>>1)&0x7777777777777777L;
+            additions/=2;
+        }
+
+        private static long hash(long key,int i){
+            long hash=(key+SEEDS[i])*0x9E3779B97F4A7C15L;
+            return hash^(hash>>>29);
+        }
+    }
+}
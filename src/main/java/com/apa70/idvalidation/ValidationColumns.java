@@ -0,0 +1,213 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+
+/**
+ * 按列保存的批量验证结果
+ * <p>
+ * 每个号码一行，不创建{@link com.apa70.idvalidation.entity.ValidationResult}：
+ * 验证结果编码为{@link PackedResult}放在一个long[]中，省、市、区/县的名称只保存在名称字典中的下标，
+ * 验证失败时为-1。名称字典是地区代码表中的数组，同一份数据的所有批次共用，不要修改。
+ * <p>
+ * 由{@link BatchValidator#validateColumns(String[])}与{@link FileValidator#validateColumns(java.io.File, java.util.function.Consumer)}创建，
+ * 各列可以直接写到按列存储的文件中。
+ */
+public final class ValidationColumns {
+
+    /** 身份证号码 */
+    private final String[] ids;
+    /** 在文件中的行号，不是从文件中读取时为null */
+    private final long[] lineNumbers;
+    /** 行数 */
+    private final int size;
+    /** 编码后的验证结果 */
+    private final long[] packed;
+    /** 省名称的下标 */
+    private final int[] provinces;
+    /** 市名称的下标 */
+    private final int[] cities;
+    /** 区/县名称的下标 */
+    private final int[] counties;
+    /** 名称字典 */
+    private final String[] names;
+
+    /**
+     * @param ids 身份证号码，前size个有效
+     * @param lineNumbers 在文件中的行号，可以为null
+     * @param size 行数
+     * @param names 名称字典
+     */
+    ValidationColumns(String[] ids,long[] lineNumbers,int size,String[] names){
+        this.ids=ids;
+        this.lineNumbers=lineNumbers;
+        this.size=size;
+        this.packed=new long[size];
+        this.provinces=new int[size];
+        this.cities=new int[size];
+        this.counties=new int[size];
+        this.names=names;
+    }
+
+    /**
+     * 写入一行
+     */
+    void set(int row,long packed,int province,int city,int county){
+        this.packed[row]=packed;
+        this.provinces[row]=province;
+        this.cities[row]=city;
+        this.counties[row]=county;
+    }
+
+    /**
+     * 行数
+     * @return int
+     */
+    public int size(){
+        return size;
+    }
+
+    /**
+     * 身份证号码
+     * @param row 行
+     * @return String
+     */
+    public String id(int row){
+        return ids[row];
+    }
+
+    /**
+     * 错误代码
+     * @param row 行
+     * @return ErrorCode
+     */
+    public ErrorCode errorCode(int row){
+        return PackedResult.errorCode(packed[row]);
+    }
+
+    /**
+     * 是否验证成功
+     * @param row 行
+     * @return bool
+     */
+    public boolean isSuccess(int row){
+        return PackedResult.isSuccess(packed[row]);
+    }
+
+    /**
+     * 性别
+     * @param row 行
+     * @return Sex 验证失败时为null
+     */
+    public Sex sex(int row){
+        return PackedResult.sex(packed[row]);
+    }
+
+    /**
+     * 出生日期
+     * @param row 行
+     * @return int yyyyMMdd，验证失败时为0
+     */
+    public int birthday(int row){
+        return PackedResult.birthday(packed[row]);
+    }
+
+    /**
+     * 地区代码版本
+     * @param row 行
+     * @return int 验证失败时为0
+     */
+    public int regionVersion(int row){
+        return PackedResult.regionVersion(packed[row]);
+    }
+
+    /**
+     * 区/县代码
+     * @param row 行
+     * @return int 验证失败时为0
+     */
+    public int countyCode(int row){
+        return PackedResult.countyCode(packed[row]);
+    }
+
+    /**
+     * 省名称
+     * @param row 行
+     * @return String 验证失败时为null
+     */
+    public String province(int row){
+        return name(provinces[row]);
+    }
+
+    /**
+     * 市名称
+     * @param row 行
+     * @return String 验证失败时为null
+     */
+    public String city(int row){
+        return name(cities[row]);
+    }
+
+    /**
+     * 区/县名称
+     * @param row 行
+     * @return String 验证失败时为null
+     */
+    public String county(int row){
+        return name(counties[row]);
+    }
+
+    private String name(int index){
+        return index<0?null:names[index];
+    }
+
+    /**
+     * 错误代码为errorCode的行数
+     * @param errorCode 错误代码
+     * @return int
+     */
+    public int count(ErrorCode errorCode){
+        int count=0;
+        for(int i=0;i<size;i++){
+            if(PackedResult.errorCode(packed[i])==errorCode)
+                count++;
+        }
+        return count;
+    }
+
+    /**
+     * 身份证号码，数组可能比{@link #size()}长
+     * @return String[]
+     */
+    public String[] getIds() {
+        return ids;
+    }
+
+    /**
+     * 在文件中的行号(从1开始)，数组可能比{@link #size()}长
+     * @return long[] 不是从文件中读取时为null
+     */
+    public long[] getLineNumbers() {
+        return lineNumbers;
+    }
+
+    public long[] getPacked() {
+        return packed;
+    }
+
+    public int[] getProvinces() {
+        return provinces;
+    }
+
+    public int[] getCities() {
+        return cities;
+    }
+
+    public int[] getCounties() {
+        return counties;
+    }
+
+    public String[] getNames() {
+        return names;
+    }
+}
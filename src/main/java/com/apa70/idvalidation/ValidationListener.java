@@ -0,0 +1,55 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Stage;
+
+/**
+ * 验证过程的监听，用于统计
+ * <p>
+ * 通过{@link IDValidator#IDValidator(String, ValidationListener)}监听验证，
+ * 通过{@link RegionIndex#addLoadListener(ValidationListener)}监听地区代码的加载。
+ * 没有设置监听时不会有任何额外的开销。方法会在验证的线程中同时调用，实现必须是线程安全的并且尽量快。
+ * 加载的监听抛出的异常被忽略，不影响加载的结果与其他监听。
+ */
+public interface ValidationListener {
+
+    /**
+     * 一次验证完成
+     * @param errorCode 验证结果
+     */
+    default void onValidate(ErrorCode errorCode){
+    }
+
+    /**
+     * 一个阶段完成
+     * @param stage 阶段
+     * @param nanos 耗时(纳秒)
+     */
+    default void onStage(Stage stage,long nanos){
+    }
+
+    /**
+     * 找到了地区代码使用的版本
+     * @param birthday 生日精准到“月”如 201912
+     * @param regionVersion 使用的版本如 201900，与birthday不是同一年时为使用了最近的版本
+     */
+    default void onRegionVersion(int birthday,int regionVersion){
+    }
+
+    /**
+     * 加载了地区代码
+     * @param path 自定义目录，自带的数据为null
+     * @param nanos 耗时(纳秒)
+     * @param reload 是否为重新加载
+     */
+    default void onIndexLoad(String path,long nanos,boolean reload){
+    }
+
+    /**
+     * 监视目录时后台重新加载失败，继续使用原来的地区代码，文件再次变化前不会重试
+     * @param path 自定义目录
+     * @param e 失败的原因
+     */
+    default void onIndexLoadFailure(String path,Exception e){
+    }
+}
@@ -0,0 +1,298 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Stage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 简单的统计
+ * <p>
+ * 统计每种错误代码的数量、每个阶段与地区代码加载的耗时分布、使用的地区代码版本。
+ * 计数都使用LongAdder，多线程下基本没有竞争。
+ * <pre>
+ * ValidationMetrics metrics=new ValidationMetrics();
+ * IDValidator validator=new IDValidator(null,metrics);
+ * RegionIndex.addLoadListener(metrics);
+ * </pre>
+ */
+public class ValidationMetrics implements ValidationListener {
+
+    /** 每种错误代码的数量 */
+    private final LongAdder[] results=adders(ErrorCode.values().length);
+    /** 每个阶段的耗时 */
+    private final Histogram[] stages=new Histogram[Stage.values().length];
+    /** 地区代码加载的耗时 */
+    private final Histogram loads=new Histogram();
+    /** 地区代码重新加载的耗时 */
+    private final Histogram reloads=new Histogram();
+    /** 后台重新加载失败的次数 */
+    private final LongAdder loadFailures=new LongAdder();
+    /** 每个版本被使用的次数 */
+    private final ConcurrentMap<Integer,LongAdder> regionVersions=new ConcurrentHashMap<>();
+    /** 使用出生当年版本的次数 */
+    private final LongAdder sameYear=new LongAdder();
+    /** 使用出生之前版本的次数 */
+    private final LongAdder earlier=new LongAdder();
+    /** 使用出生之后版本的次数 */
+    private final LongAdder later=new LongAdder();
+
+    public ValidationMetrics(){
+        for(int i=0;i<stages.length;i++)
+            stages[i]=new Histogram();
+    }
+
+    @Override
+    public void onValidate(ErrorCode errorCode) {
+        results[errorCode.ordinal()].increment();
+    }
+
+    @Override
+    public void onStage(Stage stage, long nanos) {
+        stages[stage.ordinal()].record(nanos);
+    }
+
+    @Override
+    public void onRegionVersion(int birthday, int regionVersion) {
+        LongAdder adder=regionVersions.get(regionVersion);
+        if(adder==null){
+            adder=new LongAdder();
+            LongAdder existing=regionVersions.putIfAbsent(regionVersion,adder);
+            if(existing!=null)
+                adder=existing;
+        }
+        adder.increment();
+
+        int birthYear=birthday/100,versionYear=regionVersion/100;
+        if(birthYear==versionYear)
+            sameYear.increment();
+        else if(versionYear<birthYear)
+            earlier.increment();
+        else
+            later.increment();
+    }
+
+    @Override
+    public void onIndexLoad(String path, long nanos, boolean reload) {
+        (reload?reloads:loads).record(nanos);
+    }
+
+    @Override
+    public void onIndexLoadFailure(String path, Exception e) {
+        loadFailures.increment();
+    }
+
+    /**
+     * 某种错误代码的数量
+     * @param errorCode 错误代码
+     * @return long
+     */
+    public long getCount(ErrorCode errorCode){
+        return results[errorCode.ordinal()].sum();
+    }
+
+    /**
+     * 验证的总数
+     * @return long
+     */
+    public long getTotal(){
+        long total=0;
+        for(LongAdder adder:results)
+            total+=adder.sum();
+        return total;
+    }
+
+    /**
+     * 某个阶段的耗时
+     * @param stage 阶段
+     * @return Histogram
+     */
+    public Histogram getLatency(Stage stage){
+        return stages[stage.ordinal()];
+    }
+
+    /**
+     * 地区代码加载的耗时
+     * @param reload 是否为重新加载
+     * @return Histogram
+     */
+    public Histogram getIndexLoad(boolean reload){
+        return reload?reloads:loads;
+    }
+
+    /**
+     * 后台重新加载失败的次数
+     * @return long
+     */
+    public long getIndexLoadFailures(){
+        return loadFailures.sum();
+    }
+
+    /**
+     * 每个版本被使用的次数
+     * @return Map 版本 -> 次数，按版本排序
+     */
+    public Map<Integer,Long> getRegionVersions(){
+        Map<Integer,Long> map=new TreeMap<>();
+        for(Map.Entry<Integer,LongAdder> entry:regionVersions.entrySet())
+            map.put(entry.getKey(),entry.getValue().sum());
+        return map;
+    }
+
+    /**
+     * 使用出生当年版本的次数
+     * @return long
+     */
+    public long getSameYearVersions(){
+        return sameYear.sum();
+    }
+
+    /**
+     * 出生当年没有数据，使用了出生之前最近版本的次数
+     * @return long
+     */
+    public long getEarlierVersions(){
+        return earlier.sum();
+    }
+
+    /**
+     * 出生之前没有数据，使用了出生之后最近版本的次数
+     * @return long
+     */
+    public long getLaterVersions(){
+        return later.sum();
+    }
+
+    /**
+     * 清空所有的统计
+     */
+    public void reset(){
+        for(LongAdder adder:results)
+            adder.reset();
+        for(Histogram histogram:stages)
+            histogram.reset();
+        loads.reset();
+        reloads.reset();
+        loadFailures.reset();
+        regionVersions.clear();
+        sameYear.reset();
+        earlier.reset();
+        later.reset();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder=new StringBuilder("ValidationMetrics{");
+        for(ErrorCode errorCode:ErrorCode.values())
+            builder.append(errorCode).append('=').append(getCount(errorCode)).append(", ");
+        for(Stage stage:Stage.values())
+            builder.append(stage).append('=').append(getLatency(stage)).append(", ");
+        builder.append("load=").append(loads).append(", reload=").append(reloads).append(", loadFailures=").append(getIndexLoadFailures())
+                .append(", sameYear=").append(getSameYearVersions())
+                .append(", earlier=").append(getEarlierVersions())
+                .append(", later=").append(getLaterVersions()).append('}');
+        return builder.toString();
+    }
+
+    private static LongAdder[] adders(int length){
+        LongAdder[] adders=new LongAdder[length];
+        for(int i=0;i<length;i++)
+            adders[i]=new LongAdder();
+        return adders;
+    }
+
+    /**
+     * 耗时分布，按2的幂分桶：第0个桶为0纳秒，第i个桶为[2^(i-1),2^i)纳秒
+     */
+    public static final class Histogram {
+
+        /** 桶的数量 */
+        private static final int BUCKETS=64;
+
+        private final LongAdder[] buckets=adders(BUCKETS);
+        private final LongAdder count=new LongAdder();
+        private final LongAdder sum=new LongAdder();
+
+        void record(long nanos){
+            if(nanos<0)
+                nanos=0;
+            buckets[BUCKETS-Long.numberOfLeadingZeros(nanos)].increment();
+            count.increment();
+            sum.add(nanos);
+        }
+
+        void reset(){
+            for(LongAdder adder:buckets)
+                adder.reset();
+            count.reset();
+            sum.reset();
+        }
+
+        /**
+         * 次数
+         * @return long
+         */
+        public long getCount(){
+            return count.sum();
+        }
+
+        /**
+         * 总耗时(纳秒)
+         * @return long
+         */
+        public long getSum(){
+            return sum.sum();
+        }
+
+        /**
+         * 平均耗时(纳秒)
+         * @return double 没有数据时为0
+         */
+        public double getMean(){
+            long count=getCount();
+            return count==0?0:(double)getSum()/count;
+        }
+
+        /**
+         * 百分位的耗时，为所在桶的上限，精确到2倍以内
+         * @param percentile 百分位，0到1之间，如0.99
+         * @return long 纳秒，没有数据时为0
+         */
+        public long getPercentile(double percentile){
+            long[] counts=getBuckets();
+            long total=0;
+            for(long bucket:counts)
+                total+=bucket;
+            if(total==0)
+                return 0;
+
+            long rank=(long)Math.ceil(percentile*total);
+            long seen=0;
+            for(int i=0;i<counts.length;i++){
+                seen+=counts[i];
+                if(seen>=rank&&counts[i]>0)
+                    return (1L<<i)-1;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        /**
+         * 每个桶的次数
+         * @return long[]
+         */
+        public long[] getBuckets(){
+            long[] counts=new long[BUCKETS];
+            for(int i=0;i<BUCKETS;i++)
+                counts[i]=buckets[i].sum();
+            return counts;
+        }
+
+        @Override
+        public String toString() {
+            return "{count="+getCount()+", mean="+Math.round(getMean())+"ns, p50="+getPercentile(0.5)+"ns, p99="+getPercentile(0.99)+"ns}";
+        }
+    }
+}
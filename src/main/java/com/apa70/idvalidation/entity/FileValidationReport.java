@@ -0,0 +1,89 @@
+package com.apa70.idvalidation.entity;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 文件验证的统计结果
+ */
+public final class FileValidationReport {
+
+    /** 每种错误代码的数量，下标为ErrorCode.ordinal() */
+    private final long[] counts;
+    /** 跳过的空行数，不计入总数 */
+    private final long skipped;
+    /** 耗时(毫秒) */
+    private final long elapsed;
+
+    public FileValidationReport(long[] counts, long elapsed) {
+        this(counts, 0, elapsed);
+    }
+
+    public FileValidationReport(long[] counts, long skipped, long elapsed) {
+        if(counts.length != ErrorCode.values().length)
+            throw new IllegalArgumentException("counts的长度不正确！");
+        if(skipped < 0)
+            throw new IllegalArgumentException("skipped不能小于0！");
+        this.counts = counts.clone();
+        this.skipped = skipped;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * 验证的号码总数
+     * @return long
+     */
+    public long getTotal() {
+        long total = 0;
+        for(long count : counts)
+            total += count;
+        return total;
+    }
+
+    /**
+     * 验证失败的数量
+     * @return long
+     */
+    public long getFailures() {
+        return getTotal() - getCount(ErrorCode.SUCCESS);
+    }
+
+    /**
+     * 某种错误代码的数量
+     * @param errorCode 错误代码
+     * @return long
+     */
+    public long getCount(ErrorCode errorCode) {
+        return counts[errorCode.ordinal()];
+    }
+
+    /**
+     * 每种错误代码的数量
+     * @return Map
+     */
+    public Map<ErrorCode, Long> getCounts() {
+        Map<ErrorCode, Long> map = new EnumMap<>(ErrorCode.class);
+        for(ErrorCode errorCode : ErrorCode.values())
+            map.put(errorCode, counts[errorCode.ordinal()]);
+        return map;
+    }
+
+    /**
+     * 跳过的空行数(不包括开头跳过的行)，不计入总数
+     * @return long
+     */
+    public long getSkipped() {
+        return skipped;
+    }
+
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return "FileValidationReport{total=" + getTotal() + ", counts=" + getCounts() + ", skipped=" + skipped + ", elapsed=" + elapsed + "ms}";
+    }
+}
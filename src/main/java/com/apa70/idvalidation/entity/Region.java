@@ -0,0 +1,60 @@
+package com.apa70.idvalidation.entity;
+
+/**
+ * 身份证前六位对应的省市区
+ */
+public final class Region {
+
+    /** 省份 */
+    private final String province;
+    /** 市 */
+    private final String city;
+    /** 区/县 */
+    private final String county;
+    /** 省代码 */
+    private final int provinceCode;
+    /** 市代码 */
+    private final int cityCode;
+    /** 区/县代码 */
+    private final int countyCode;
+    /** 使用的地区代码版本 */
+    private final int regionVersion;
+
+    public Region(String province, String city, String county, int provinceCode, int cityCode, int countyCode, int regionVersion) {
+        this.province = province;
+        this.city = city;
+        this.county = county;
+        this.provinceCode = provinceCode;
+        this.cityCode = cityCode;
+        this.countyCode = countyCode;
+        this.regionVersion = regionVersion;
+    }
+
+    public String getProvince() {
+        return province;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public String getCounty() {
+        return county;
+    }
+
+    public int getProvinceCode() {
+        return provinceCode;
+    }
+
+    public int getCityCode() {
+        return cityCode;
+    }
+
+    public int getCountyCode() {
+        return countyCode;
+    }
+
+    public int getRegionVersion() {
+        return regionVersion;
+    }
+}
@@ -0,0 +1,54 @@
+package com.apa70.idvalidation.entity;
+
+import java.util.List;
+
+/**
+ * 两个版本之间地区代码的变化
+ */
+public final class RegionDiff {
+
+    /** 原来的版本 */
+    private final int fromVersion;
+    /** 新的版本 */
+    private final int toVersion;
+    /** 新增的代码，为新版本的数据 */
+    private final List<Region> added;
+    /** 撤销的代码，为原来版本的数据 */
+    private final List<Region> removed;
+    /** 代码不变名称改变的，为新版本的数据 */
+    private final List<Region> renamed;
+
+    public RegionDiff(int fromVersion, int toVersion, List<Region> added, List<Region> removed, List<Region> renamed) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.added = added;
+        this.removed = removed;
+        this.renamed = renamed;
+    }
+
+    public int getFromVersion() {
+        return fromVersion;
+    }
+
+    public int getToVersion() {
+        return toVersion;
+    }
+
+    public List<Region> getAdded() {
+        return added;
+    }
+
+    public List<Region> getRemoved() {
+        return removed;
+    }
+
+    public List<Region> getRenamed() {
+        return renamed;
+    }
+
+    @Override
+    public String toString() {
+        return "RegionDiff{fromVersion=" + fromVersion + ", toVersion=" + toVersion
+                + ", added=" + added.size() + ", removed=" + removed.size() + ", renamed=" + renamed.size() + "}";
+    }
+}
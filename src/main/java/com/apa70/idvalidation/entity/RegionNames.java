@@ -0,0 +1,30 @@
+package com.apa70.idvalidation.entity;
+
+/**
+ * 按版本的下标查找省市区的名称
+ * <p>
+ * 验证结果只保存下标，调用getProvince等方法时才查找名称。实现必须创建后不可修改，可以在多线程下共用。
+ */
+public interface RegionNames {
+
+    /**
+     * 省份
+     * @param entry 版本的下标
+     * @return String
+     */
+    String getProvince(int entry);
+
+    /**
+     * 市
+     * @param entry 版本的下标
+     * @return String
+     */
+    String getCity(int entry);
+
+    /**
+     * 区/县
+     * @param entry 版本的下标
+     * @return String
+     */
+    String getCounty(int entry);
+}
@@ -0,0 +1,207 @@
+package com.apa70.idvalidation.entity;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+
+/**
+ * 验证结果
+ * <p>
+ * 只保存代码与版本的下标，省市区的名称、出生日期的Date与性别的汉字描述都在调用getter时才得到，
+ * 只判断是否成功或者只使用代码时不需要这些对象。名称从验证时使用的地区代码表中查找，
+ * 所以保存验证结果时会同时保留那份地区代码表。
+ * <p>
+ * 创建后不可修改，可以在多个线程之间传递。
+ */
+public final class ValidationResult {
+
+    /** 身份证号码 */
+    private final String id;
+    /** 错误代码 */
+    private final ErrorCode errorCode;
+    /** 错误信息 */
+    private final String errorMsg;
+    /** 出生日期，yyyyMMdd */
+    private final int birthday;
+    /** 性别 */
+    private final Sex sex;
+    /** 区/县代码 */
+    private final int countyCode;
+    /** 使用的地区代码版本 */
+    private final int regionVersion;
+    /** 查找省市区的名称，失败时为null */
+    private final RegionNames names;
+    /** 版本在names中的下标 */
+    private final int entry;
+
+    private ValidationResult(String id, ErrorCode errorCode, String errorMsg, int birthday, Sex sex,
+                             int countyCode, int regionVersion, RegionNames names, int entry) {
+        this.id = id;
+        this.errorCode = errorCode;
+        this.errorMsg = errorMsg;
+        this.birthday = birthday;
+        this.sex = sex;
+        this.countyCode = countyCode;
+        this.regionVersion = regionVersion;
+        this.names = names;
+        this.entry = entry;
+    }
+
+    /**
+     * 验证失败的结果
+     * @param id 身份证号码
+     * @param errorCode 错误代码
+     * @param errorMsg 错误信息
+     * @return ValidationResult
+     */
+    public static ValidationResult fail(String id, ErrorCode errorCode, String errorMsg){
+        return new ValidationResult(id,errorCode,errorMsg,0,null,0,0,null,-1);
+    }
+
+    /**
+     * 验证成功的结果
+     * @param id 身份证号码
+     * @param birthday 出生日期，yyyyMMdd
+     * @param sex 性别
+     * @param region 地区
+     * @return ValidationResult
+     */
+    public static ValidationResult success(String id, int birthday, Sex sex, Region region){
+        return new ValidationResult(id,ErrorCode.SUCCESS,"",birthday,sex,
+                region.getCountyCode(),region.getRegionVersion(),new SingleRegion(region),0);
+    }
+
+    /**
+     * 验证成功的结果，名称在需要时才通过names查找
+     * @param id 身份证号码
+     * @param birthday 出生日期，yyyyMMdd
+     * @param sex 性别
+     * @param countyCode 区/县代码
+     * @param regionVersion 使用的地区代码版本
+     * @param names 查找省市区的名称
+     * @param entry 版本在names中的下标
+     * @return ValidationResult
+     */
+    public static ValidationResult success(String id, int birthday, Sex sex, int countyCode, int regionVersion,
+                                           RegionNames names, int entry){
+        return new ValidationResult(id,ErrorCode.SUCCESS,"",birthday,sex,countyCode,regionVersion,names,entry);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public boolean isSuccess() {
+        return errorCode == ErrorCode.SUCCESS;
+    }
+
+    public ErrorCode getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMsg() {
+        return errorMsg;
+    }
+
+    /**
+     * 出生日期，每次返回新的Date对象，为系统默认时区的0点
+     * @return Date 失败时为null
+     */
+    public Date getBirth() {
+        LocalDate birthDate = getBirthDate();
+        return birthDate == null ? null : Date.from(birthDate.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    /**
+     * 出生日期
+     * @return LocalDate 失败时为null
+     */
+    public LocalDate getBirthDate() {
+        return birthday == 0 ? null : LocalDate.of(birthday / 10000, birthday / 100 % 100, birthday % 100);
+    }
+
+    /**
+     * 出生日期
+     * @return int yyyyMMdd格式，如 19900307，失败时为0
+     */
+    public int getBirthday() {
+        return birthday;
+    }
+
+    public Sex getSex() {
+        return sex;
+    }
+
+    public String getSexMsg() {
+        if(sex == null)
+            return null;
+        return sex == Sex.MAN ? "男" : "女";
+    }
+
+    public String getProvince() {
+        return names == null ? null : names.getProvince(entry);
+    }
+
+    public String getCity() {
+        return names == null ? null : names.getCity(entry);
+    }
+
+    public String getCounty() {
+        return names == null ? null : names.getCounty(entry);
+    }
+
+    public int getProvinceCode() {
+        return countyCode / 10000 * 10000;
+    }
+
+    public int getCityCode() {
+        return countyCode / 100 * 100;
+    }
+
+    public int getCountyCode() {
+        return countyCode;
+    }
+
+    public int getRegionVersion() {
+        return regionVersion;
+    }
+
+    @Override
+    public String toString() {
+        if(!isSuccess())
+            return "ValidationResult{id=" + id + ", errorCode=" + errorCode + ", errorMsg=" + errorMsg + "}";
+        return "ValidationResult{id=" + id + ", errorCode=" + errorCode
+                + ", province=" + getProvince() + ", city=" + getCity() + ", county=" + getCounty()
+                + ", countyCode=" + countyCode + ", regionVersion=" + regionVersion + ", sex=" + sex + "}";
+    }
+
+    /**
+     * 只有一个地区的RegionNames，忽略下标
+     */
+    private static final class SingleRegion implements RegionNames {
+
+        private final Region region;
+
+        SingleRegion(Region region) {
+            this.region = region;
+        }
+
+        @Override
+        public String getProvince(int entry) {
+            return region.getProvince();
+        }
+
+        @Override
+        public String getCity(int entry) {
+            return region.getCity();
+        }
+
+        @Override
+        public String getCounty(int entry) {
+            return region.getCounty();
+        }
+    }
+}
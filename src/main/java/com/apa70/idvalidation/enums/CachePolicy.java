@@ -0,0 +1,11 @@
+package com.apa70.idvalidation.enums;
+
+/**
+ * 验证结果缓存的淘汰策略
+ */
+public enum CachePolicy {
+    /** 淘汰最久没有使用的 */
+    LRU,
+    /** 在LRU的基础上，只有新的号码比要淘汰的号码使用得更频繁时才放入缓存，偶尔出现一次的号码不会挤掉常用的号码 */
+    TINY_LFU
+}
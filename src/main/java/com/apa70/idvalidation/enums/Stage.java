@@ -0,0 +1,13 @@
+package com.apa70.idvalidation.enums;
+
+/**
+ * 验证的阶段
+ */
+public enum Stage {
+    /** 长度、格式与第18位，在同一次循环中完成 */
+    CHECKSUM,
+    /** 出生日期 */
+    DATE,
+    /** 前六位的地区代码，包括解析出生日期之前的位图检查，通过效验后每次验证都有一次(与之后的查找合计) */
+    REGION
+}
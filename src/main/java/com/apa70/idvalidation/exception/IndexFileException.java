@@ -4,4 +4,8 @@ public class IndexFileException extends RuntimeException{
     public IndexFileException(String msg){
         super(msg);
     }
+
+    public IndexFileException(String msg,Throwable cause){
+        super(msg,cause);
+    }
 }
@@ -0,0 +1,118 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AsyncValidatorTest {
+
+    private static final String[] IDS={"370102198511204565","140123","140000000000000000","00000019900101000X","11010120000229123X"};
+
+    @Test
+    public void validate() throws Exception {
+        IDValidator validator=new IDValidator();
+        try(AsyncValidator asyncValidator=new AsyncValidator(validator,100)){
+            List<CompletableFuture<ValidationResult>> futures=new ArrayList<>();
+            for(String id:IDS)
+                futures.add(asyncValidator.validate(id));
+            for(int i=0;i<IDS.length;i++)
+                Assert.assertEquals(validator.validate(IDS[i]).toString(),futures.get(i).get(10,TimeUnit.SECONDS).toString());
+        }
+    }
+
+    @Test
+    public void rejected() throws Exception {
+        //手动执行的线程池，任务不会自动完成
+        Deque<Runnable> tasks=new ArrayDeque<>();
+        AsyncValidator asyncValidator=new AsyncValidator(new IDValidator(),tasks::add,2);
+        CompletableFuture<ValidationResult> first=asyncValidator.validate(IDS[0]);
+        asyncValidator.validate(IDS[1]);
+        CompletableFuture<ValidationResult> third=asyncValidator.validate(IDS[2]);
+        Assert.assertTrue(third.isCompletedExceptionally());
+        try {
+            third.get();
+            Assert.fail();
+        }catch (ExecutionException e){
+            Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+        }
+
+        //完成一个后有了空位
+        tasks.removeFirst().run();
+        Assert.assertTrue(first.get().isSuccess());
+        Assert.assertEquals(1,asyncValidator.getAvailable());
+        Assert.assertFalse(asyncValidator.validate(IDS[2]).isCompletedExceptionally());
+    }
+
+    @Test
+    public void sharedPermits(){
+        //空位全部被单个验证占用时，批量验证等到有空位后再继续
+        Deque<Runnable> tasks=new ArrayDeque<>();
+        AsyncValidator asyncValidator=new AsyncValidator(new IDValidator(),tasks::add,1);
+        asyncValidator.validate(IDS[0]);
+        List<ValidationResult> results=new ArrayList<>();
+        CompletableFuture<Void> future=asyncValidator.validateAll(Arrays.asList(IDS[1],IDS[2]).iterator(),results::add);
+        Assert.assertEquals(1,tasks.size());
+
+        while(!tasks.isEmpty())
+            tasks.removeFirst().run();
+        Assert.assertTrue(future.isDone());
+        Assert.assertEquals(2,results.size());
+        Assert.assertEquals(ErrorCode.LENGTH,results.get(0).getErrorCode());
+        Assert.assertEquals(ErrorCode.VERIFY,results.get(1).getErrorCode());
+    }
+
+    @Test
+    public void validateAll() throws Exception {
+        int count=20000,maxPending=8;
+        List<String> ids=new ArrayList<>();
+        for(int i=0;i<count;i++)
+            ids.add(IDS[i%IDS.length]);
+
+        //记录同时在执行中的最大数量
+        ExecutorService pool=Executors.newFixedThreadPool(4);
+        AtomicInteger running=new AtomicInteger(),maxRunning=new AtomicInteger();
+        Executor executor=task -> pool.execute(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(),Math::max);
+            try {
+                task.run();
+            }finally {
+                running.decrementAndGet();
+            }
+        });
+
+        Map<ErrorCode,LongAdder> counts=new ConcurrentHashMap<>();
+        try(AsyncValidator asyncValidator=new AsyncValidator(new IDValidator(),executor,maxPending)){
+            asyncValidator.validateAll(ids.iterator(),
+                    result -> counts.computeIfAbsent(result.getErrorCode(),k -> new LongAdder()).increment())
+                    .get(30,TimeUnit.SECONDS);
+            Assert.assertEquals(maxPending,asyncValidator.getAvailable());
+        }finally {
+            pool.shutdown();
+        }
+        Assert.assertEquals(count*2/5,counts.get(ErrorCode.SUCCESS).sum());
+        Assert.assertEquals(count/5,counts.get(ErrorCode.REGION).sum());
+        Assert.assertTrue(maxRunning.get()<=maxPending);
+    }
+
+    @Test
+    public void validateAllFailure() throws Exception {
+        try(AsyncValidator asyncValidator=new AsyncValidator(new IDValidator(),4)){
+            CompletableFuture<Void> future=asyncValidator.validateAll(Arrays.asList(IDS).iterator(),result -> {
+                if(!result.isSuccess())
+                    throw new IllegalStateException("处理失败");
+            });
+            try {
+                future.get(10,TimeUnit.SECONDS);
+                Assert.fail();
+            }catch (ExecutionException e){
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+public class BatchValidatorTest {
+
+    private static final String[] IDS={"110101199003071233","370102198511204565","140123","140000000000000000",
+            "140xxx1475xxxxxxxx","00000019900101000X","371202197801010023","11010120000229123X"};
+    private static final ErrorCode[] CODES={ErrorCode.SUCCESS,ErrorCode.SUCCESS,ErrorCode.LENGTH,ErrorCode.VERIFY,
+            ErrorCode.FORMAT,ErrorCode.REGION,ErrorCode.SUCCESS,ErrorCode.SUCCESS};
+
+    private final IDValidator validator=new IDValidator();
+
+    @Test
+    public void sequential(){
+        ValidationResult[] results=new BatchValidator(validator).validate(IDS);
+        for(int i=0;i<IDS.length;i++){
+            Assert.assertEquals(IDS[i],results[i].getId());
+            Assert.assertEquals(CODES[i],results[i].getErrorCode());
+        }
+    }
+
+    @Test
+    public void parallel(){
+        String[] ids=new String[10000];
+        for(int i=0;i<ids.length;i++)
+            ids[i]=IDS[i%IDS.length];
+
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try {
+            BatchValidator batchValidator=new BatchValidator(validator,pool,100);
+            List<ValidationResult> results=batchValidator.validate(Arrays.asList(ids));
+            Assert.assertEquals(ids.length,results.size());
+            for(int i=0;i<ids.length;i++){
+                Assert.assertSame(ids[i],results.get(i).getId());
+                Assert.assertEquals(CODES[i%CODES.length],results.get(i).getErrorCode());
+            }
+
+            List<ValidationResult> streamResults=batchValidator.validate(Stream.of(IDS));
+            Assert.assertEquals(IDS.length,streamResults.size());
+            Assert.assertEquals(370102,streamResults.get(1).getCountyCode());
+        }finally {
+            pool.shutdown();
+        }
+    }
+}
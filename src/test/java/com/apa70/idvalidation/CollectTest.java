@@ -0,0 +1,94 @@
+package com.apa70.idvalidation;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+
+public class CollectTest {
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void addAll() throws IOException {
+        File html=folder.newFolder("html");
+        writeHtml(new File(html,"201800.html"),"北京市","东城区");
+        writeHtml(new File(html,"code-201900.htm"),"北京市","东城区(新)");
+        Files.write(new File(html,"readme.txt").toPath(),"不是数据".getBytes(StandardCharsets.UTF_8));
+        String path=folder.newFolder("data").getPath();
+
+        Collect collect=new Collect();
+        collect.setSnapshot(true);
+        Assert.assertEquals(2,collect.addAll(html,path));
+        Map<String,Map<String,String>> codeMap=readJson(path);
+        Assert.assertEquals("东城区",codeMap.get("110101").get("201800"));
+        Assert.assertEquals("东城区(新)",codeMap.get("110101").get("201900"));
+        Assert.assertEquals("北京市",codeMap.get("110000").get("201900"));
+        Assert.assertTrue(new File(path,"administrative-code-data/"+RegionSnapshot.FILE_NAME).isFile());
+
+        //已有的版本不再解析，只添加新的版本
+        writeHtml(new File(html,"201800.html"),"北京市","不会被读取");
+        writeHtml(new File(html,"202000.html"),"北京市","东城区(2020)");
+        Assert.assertEquals(1,collect.addAll(html,path));
+        codeMap=readJson(path);
+        Assert.assertEquals("东城区",codeMap.get("110101").get("201800"));
+        Assert.assertEquals("东城区(2020)",codeMap.get("110101").get("202000"));
+
+        Assert.assertEquals(0,collect.addAll(html,path));
+    }
+
+    @Test
+    public void sameAsAdd() throws IOException {
+        File html=folder.newFolder("html");
+        File first=new File(html,"201800.html");
+        File second=new File(html,"201900.html");
+        writeHtml(first,"北京市","东城区");
+        writeHtml(second,"北京市","西城区");
+
+        String bulk=folder.newFolder("bulk").getPath();
+        new Collect().addAll(html,bulk);
+        String single=folder.newFolder("single").getPath();
+        new Collect().add(first,201800,single);
+        new Collect().add(second,201900,single);
+        Assert.assertEquals(readJson(single),readJson(bulk));
+    }
+
+    @Test
+    public void compact() throws IOException {
+        File data=new File(folder.newFolder("data"),"administrative-code-data");
+        Assert.assertTrue(data.mkdir());
+        File json=new File(data,"code.json");
+        //110102在198100中没有，不能与前后的版本合并
+        String full="{\"110101\":{\"198000\":\"东城区\",\"198100\":\"东城区\",\"198200\":\"东城区\",\"198300\":\"东城区(新)\"},"
+                +"\"110102\":{\"198000\":\"西城区\",\"198200\":\"西城区\",\"198300\":\"西城区\"}}";
+        Files.write(json.toPath(),full.getBytes(StandardCharsets.UTF_8));
+
+        new Collect().compact(data.getParent());
+        String compacted=new String(Files.readAllBytes(json.toPath()),StandardCharsets.UTF_8);
+        Assert.assertEquals("{\"versions\":[198000,198100,198200,198300],\"codes\":{"
+                +"\"110101\":{\"198000-198200\":\"东城区\",\"198300\":\"东城区(新)\"},"
+                +"\"110102\":{\"198000\":\"西城区\",\"198200-198300\":\"西城区\"}}}",compacted);
+        Assert.assertEquals(CodeFile.parse(full).expand(),readJson(data.getParent()));
+    }
+
+    private static void writeHtml(File file,String province,String county) throws IOException {
+        String html="<html><body><table>"
+                +"<tr><td>标题</td></tr><tr><td>说明</td></tr><tr><td>行政区划代码</td><td>名称</td></tr>"
+                +"<tr><td>110000</td><td>"+province+"</td></tr>"
+                +"<tr><td>110101</td><td>"+county+"</td></tr>"
+                +"</table></body></html>";
+        Files.write(file.toPath(),html.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String,Map<String,String>> readJson(String path) throws IOException {
+        byte[] bytes=Files.readAllBytes(new File(path,"administrative-code-data/code.json").toPath());
+        return CodeFile.parse(new String(bytes,StandardCharsets.UTF_8)).expand();
+    }
+}
@@ -0,0 +1,139 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.FileValidationReport;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+public class FileValidatorTest {
+
+    private static final String[] IDS={"110101199003071233","370102198511204565","140123","140000000000000000",
+            "140xxx1475xxxxxxxx","00000019900101000X","371202197801010023","11010120000229123X"};
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void csv() throws IOException {
+        File input=folder.newFile("ids.csv");
+        List<String> lines=new ArrayList<>();
+        lines.add("name,id");
+        for(int i=0;i<10000;i++)
+            lines.add("n"+i+",\""+IDS[i%IDS.length]+"\"\r");
+        lines.add("");
+        Files.write(input.toPath(),lines,StandardCharsets.UTF_8);
+
+        FileValidator fileValidator=new FileValidator(new IDValidator());
+        fileValidator.setColumn(1);
+        fileValidator.setSkipLines(1);
+        fileValidator.setFailuresOnly(true);
+        fileValidator.setChunkSize(100);
+        fileValidator.setThreads(3);
+
+        File output=folder.newFile("failures.csv");
+        FileValidationReport report=fileValidator.validate(input,output);
+        Assert.assertEquals(10000,report.getTotal());
+        Assert.assertEquals(5000,report.getCount(ErrorCode.SUCCESS));
+        Assert.assertEquals(1250,report.getCount(ErrorCode.LENGTH));
+        Assert.assertEquals(1250,report.getCount(ErrorCode.VERIFY));
+        Assert.assertEquals(1250,report.getCount(ErrorCode.FORMAT));
+        Assert.assertEquals(1250,report.getCount(ErrorCode.REGION));
+
+        List<String> failures=Files.readAllLines(output.toPath(),StandardCharsets.UTF_8);
+        Assert.assertEquals(5000,failures.size());
+        Assert.assertEquals("4,140123,LENGTH",failures.get(0));
+        Assert.assertEquals("5,140000000000000000,VERIFY",failures.get(1));
+        Assert.assertEquals("9999,00000019900101000X,REGION",failures.get(4999));
+    }
+
+    @Test
+    public void lines() throws IOException {
+        File input=folder.newFile("ids.txt");
+        //最后一行没有换行符
+        Files.write(input.toPath(),"110101199003071233\n\n140123".getBytes(StandardCharsets.UTF_8));
+
+        FileValidationReport report=new FileValidator(new IDValidator()).validate(input);
+        Assert.assertEquals(2,report.getTotal());
+        Assert.assertEquals(1,report.getFailures());
+        Assert.assertEquals(1,report.getSkipped());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void nonAsciiSeparator() {
+        new FileValidator(new IDValidator()).setSeparator('，');
+    }
+
+    @Test
+    public void unusualLines() throws IOException {
+        File input=folder.newFile("unusual.csv");
+        StringBuilder longLine=new StringBuilder("n,");
+        while(longLine.length()<=FileValidator.MAX_LINE_LENGTH)
+            longLine.append('1');
+        //非ASCII的内容、没有第二列、第二列为空与超长的行都不能丢弃
+        String text="n,110101199003071233\n"
+                +"n,身份证\n"
+                +"n,１１０１０１１９９００３０７１２３３\n"
+                +"n,\"张\"\n"
+                +"n\n"
+                +"n, \n"
+                +longLine+"\n"
+                +" \r\n";
+        Files.write(input.toPath(),text.getBytes(StandardCharsets.UTF_8));
+
+        FileValidator fileValidator=new FileValidator(new IDValidator());
+        fileValidator.setColumn(1);
+        File output=folder.newFile("unusual-result.csv");
+        FileValidationReport report=fileValidator.validate(input,output);
+        Assert.assertEquals(7,report.getTotal());
+        Assert.assertEquals(1,report.getCount(ErrorCode.SUCCESS));
+        Assert.assertEquals(5,report.getCount(ErrorCode.LENGTH));
+        Assert.assertEquals(1,report.getCount(ErrorCode.FORMAT));
+        Assert.assertEquals(1,report.getSkipped());
+
+        List<String> results=Files.readAllLines(output.toPath(),StandardCharsets.UTF_8);
+        Assert.assertEquals(7,results.size());
+        Assert.assertEquals("2,身份证,LENGTH",results.get(1));
+        Assert.assertEquals("3,１１０１０１１９９００３０７１２３３,FORMAT",results.get(2));
+        Assert.assertEquals("4,张,LENGTH",results.get(3));
+        Assert.assertEquals("5,,LENGTH",results.get(4));
+        Assert.assertEquals("7,,LENGTH",results.get(6));
+    }
+
+    @Test
+    public void columns() throws IOException {
+        File input=folder.newFile("columns.txt");
+        List<String> lines=new ArrayList<>();
+        for(int i=0;i<1000;i++)
+            lines.add(IDS[i%IDS.length]);
+        Files.write(input.toPath(),lines,StandardCharsets.UTF_8);
+
+        FileValidator fileValidator=new FileValidator(new IDValidator());
+        fileValidator.setChunkSize(64);
+        fileValidator.setThreads(3);
+        List<ValidationColumns> chunks=new ArrayList<>();
+        FileValidationReport report=fileValidator.validateColumns(input,chunks::add);
+        Assert.assertEquals(1000,report.getTotal());
+        Assert.assertEquals(500,report.getCount(ErrorCode.SUCCESS));
+
+        //按文件中的顺序，每块一次
+        Assert.assertEquals(16,chunks.size());
+        long lineNumber=1;
+        for(ValidationColumns columns:chunks){
+            for(int i=0;i<columns.size();i++,lineNumber++){
+                Assert.assertEquals(lineNumber,columns.getLineNumbers()[i]);
+                Assert.assertEquals(lines.get((int)lineNumber-1),columns.id(i));
+            }
+        }
+        Assert.assertEquals(1001,lineNumber);
+        Assert.assertEquals("历下区",chunks.get(0).county(1));
+    }
+}
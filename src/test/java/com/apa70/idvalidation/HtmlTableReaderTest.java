@@ -0,0 +1,70 @@
+package com.apa70.idvalidation;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Elements;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class HtmlTableReaderTest {
+
+    private static final String[] HTMLS={
+            //民政部网页的格式
+            "<html><head><meta charset=\"utf-8\"><title>行政区划代码</title></head><body><table>"
+                    +"<tr><td colspan=\"3\">中华人民共和国县以上行政区划代码</td></tr><tr><td></td><td></td></tr>"
+                    +"<tr><td></td><td>行政区划代码</td><td>单位名称</td></tr>"
+                    +"<tr height=\"19\"><td class=\"x\"></td><td class=\"x\">110000</td><td class=\"x\">北京市</td></tr>"
+                    +"<tr height=\"19\"><td class=\"x\"></td><td class=\"x\">110101</td>"
+                    +"<td class=\"x\"><span style=\"mso-spacerun:yes\">&nbsp;</span>东城区</td></tr></table></body></html>",
+            //省略结束标签、大写标签、属性中的>、注释、script与th
+            "<TABLE><TR><TH>a<TR><TD>b<TR><TD>c<!-- <td>110000</td> -->"
+                    +"<tr><td title='x>y'>  110102 \n</td><td>西&amp;城&#21306;&#x533A; <b>一</b> <i>二</i></td>"
+                    +"<script>var s='<td>120000</td>';</script><tr><td>-5<td>负数<td>0123<td>前导零</TABLE>",
+            //多个表格，前3行是所有表格一起计算的
+            "<table><tr><td>1</td></tr><tr><td>2</td></tr></table><p>中间</p><td>999999</td>"
+                    +"<table><tr><td>3</td></tr><tr><td>130000</td><td>河北省</td></tr></table>",
+            //单元格中的换行与块级元素
+            "<table><tr><td>1</td></tr><tr><td>2</td></tr><tr><td>3</td></tr>"
+                    +"<tr><td>140000</td><td>山西<br>省</td><td><div>a</div><div>b</div></td><td>x &unknown; &lt;y&gt;</td></tr></table>",
+    };
+
+    @Test
+    public void sameAsJsoup() throws IOException {
+        for(String html:HTMLS)
+            Assert.assertEquals(html,jsoupCells(html),streamCells(html));
+    }
+
+    private static List<String> streamCells(String html) throws IOException {
+        List<String> cells=new ArrayList<>();
+        try(HtmlTableReader reader=new HtmlTableReader(new StringReader(html))){
+            String cell;
+            while((cell=reader.nextCell())!=null){
+                if(reader.getRow()>3)
+                    cells.add(cell);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * 原来使用DOM的读取方式
+     */
+    private static List<String> jsoupCells(String html){
+        List<String> cells=new ArrayList<>();
+        int trsI=0;
+        Elements tables=Jsoup.parse(html).select("table");
+        for(Element tableElement:tables){
+            for(Element trElement:tableElement.select("tr")){
+                if(trsI<3){trsI++;continue;}
+                for(Element tdElement:trElement.select("td"))
+                    cells.add(tdElement.text());
+            }
+        }
+        return cells;
+    }
+}
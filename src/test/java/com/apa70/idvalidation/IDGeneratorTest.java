@@ -0,0 +1,96 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.BitSet;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class IDGeneratorTest {
+
+    private static RegionIndex index;
+    private static IDValidator validator;
+
+    @BeforeClass
+    public static void load() throws IOException {
+        index=RegionIndex.getResources();
+        validator=new IDValidator();
+    }
+
+    @Test
+    public void everyErrorCode(){
+        IDGenerator generator=new IDGenerator(index);
+        for(ErrorCode errorCode:ErrorCode.values()){
+            for(String id:generator.generate(errorCode,20000,errorCode.ordinal()))
+                Assert.assertEquals(id,errorCode,validator.validate(id).getErrorCode());
+        }
+    }
+
+    @Test
+    public void sameSeed(){
+        IDGenerator generator=new IDGenerator(index);
+        Assert.assertArrayEquals(generator.generate(ErrorCode.SUCCESS,1000,7),generator.generate(ErrorCode.SUCCESS,1000,7));
+        Assert.assertArrayEquals(generator.generate(ErrorCode.FORMAT,1000,7),new IDGenerator(index).generate(ErrorCode.FORMAT,1000,7));
+    }
+
+    @Test
+    public void yearWeights(){
+        //只有1990年与1992年
+        IDGenerator generator=new IDGenerator(index,1990,new double[]{1,0,3});
+        int[] years=new int[3];
+        for(String id:generator.generate(ErrorCode.SUCCESS,40000,1)){
+            ValidationResult result=validator.validate(id);
+            Assert.assertTrue(id,result.isSuccess());
+            years[result.getBirthday()/10000-1990]++;
+        }
+        Assert.assertEquals(0,years[1]);
+        Assert.assertEquals(3.0,(double)years[2]/years[0],0.2);
+    }
+
+    @Test
+    public void beforeFirstVersion(){
+        //1980年之前使用之后最近的版本
+        IDGenerator generator=new IDGenerator(index,1950,1960);
+        for(String id:generator.generate(ErrorCode.SUCCESS,5000,3))
+            Assert.assertTrue(id,validator.validate(id).isSuccess());
+        for(String id:generator.generate(ErrorCode.REGION,5000,3))
+            Assert.assertEquals(id,ErrorCode.REGION,validator.validate(id).getErrorCode());
+    }
+
+    @Test
+    public void mix(){
+        IDGenerator generator=new IDGenerator(index);
+        Map<ErrorCode,Double> mix=new EnumMap<>(ErrorCode.class);
+        mix.put(ErrorCode.SUCCESS,0.9);
+        mix.put(ErrorCode.VERIFY,0.1);
+        int[] counts=new int[ErrorCode.values().length];
+        for(String id:generator.generate(mix,50000,11))
+            counts[validator.validate(id).getErrorCode().ordinal()]++;
+        Assert.assertEquals(0,counts[ErrorCode.LENGTH.ordinal()]+counts[ErrorCode.FORMAT.ordinal()]+counts[ErrorCode.REGION.ordinal()]);
+        Assert.assertEquals(0.1,counts[ErrorCode.VERIFY.ordinal()]/50000.0,0.01);
+    }
+
+    @Test
+    public void packed(){
+        IDGenerator generator=new IDGenerator(index);
+        BitSet passed=PackedIDChecker.check(generator.generatePacked(ErrorCode.SUCCESS,1000,5));
+        Assert.assertEquals(1000,passed.cardinality());
+        passed=PackedIDChecker.check(generator.generatePacked(ErrorCode.VERIFY,1000,5));
+        Assert.assertEquals(0,passed.cardinality());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void packedLength(){
+        new IDGenerator(index).generatePacked(ErrorCode.LENGTH,1,1);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void futureYear(){
+        new IDGenerator(index,2000,3000);
+    }
+}
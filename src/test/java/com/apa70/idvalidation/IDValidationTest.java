@@ -18,7 +18,7 @@ public class IDValidationTest {
     @Test
     public void successZhiXianShi() throws IOException {
         //直辖市身份证号
-        idValidation.validate("正确的身份证号码");
+        idValidation.validate("110101199003071233");
         System.out.println(JSON.toJSONString(idValidation));
         System.out.println(idValidation.getProvince());
         System.out.println(idValidation.getCity());
@@ -31,7 +31,7 @@ public class IDValidationTest {
     @Test
     public void successSheng() throws IOException{
         //省身份身份证号
-        idValidation.validate("");
+        idValidation.validate("370102198511204565");
         System.out.println(idValidation.getProvince());
         System.out.println(idValidation.getCity());
         System.out.println(idValidation.getCounty());
@@ -55,7 +55,7 @@ public class IDValidationTest {
         Assert.assertEquals(idValidation.getErrorCode(),ErrorCode.FORMAT);
 
         //行政代码错误
-        idValidation.validate("000000000000000001");
+        idValidation.validate("00000019900101000X");
         Assert.assertEquals(idValidation.getErrorCode(),ErrorCode.REGION);
     }
 }
@@ -0,0 +1,125 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.Region;
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class IDValidatorTest {
+
+    private final IDValidator validator=new IDValidator();
+
+    @Test
+    public void success(){
+        ValidationResult result=validator.validate("370102198511204565");
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals("山东省",result.getProvince());
+        Assert.assertEquals("济南市",result.getCity());
+        Assert.assertEquals("历下区",result.getCounty());
+        Assert.assertEquals(370000,result.getProvinceCode());
+        Assert.assertEquals(370100,result.getCityCode());
+        Assert.assertEquals(370102,result.getCountyCode());
+        Assert.assertEquals(198500,result.getRegionVersion());
+        Assert.assertEquals(Sex.WOMAN,result.getSex());
+    }
+
+    @Test
+    public void nearestVersion(){
+        //莱城区1992年才有数据，之前出生的使用之后最近的版本
+        ValidationResult result=validator.validate("371202197801010023");
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(199200,result.getRegionVersion());
+        Assert.assertEquals(Sex.WOMAN,result.getSex());
+    }
+
+    @Test
+    public void error(){
+        Assert.assertEquals(ErrorCode.LENGTH,validator.validate("140123").getErrorCode());
+        Assert.assertEquals(ErrorCode.LENGTH,validator.validate(null).getErrorCode());
+        Assert.assertEquals(ErrorCode.VERIFY,validator.validate("140000000000000000").getErrorCode());
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("140xxx1475xxxxxxxx").getErrorCode());
+        Assert.assertEquals(ErrorCode.REGION,validator.validate("00000019900101000X").getErrorCode());
+        //北京市没有1980年的数据
+        Assert.assertEquals(ErrorCode.REGION,validator.validate("110101198001010010").getErrorCode());
+    }
+
+    @Test
+    public void birth(){
+        ValidationResult result=validator.validate("11010120000229123X");
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals(20000229,result.getBirthday());
+        Assert.assertEquals(LocalDate.of(2000,2,29),result.getBirthDate());
+
+        //月份不存在
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("110101199913321238").getErrorCode());
+        //1900年不是闰年
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("110101190002291233").getErrorCode());
+        //未来的日期
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("110101209901011239").getErrorCode());
+        //年份过早
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("110101179901011234").getErrorCode());
+    }
+
+    @Test
+    public void quickCheck(){
+        Assert.assertEquals(ErrorCode.SUCCESS,IDValidator.quickCheck("11010119900307109X"));
+        Assert.assertEquals(ErrorCode.SUCCESS,IDValidator.quickCheck(new StringBuilder("11010119900307109x")));
+        Assert.assertEquals(ErrorCode.VERIFY,IDValidator.quickCheck("110101199003071091"));
+        Assert.assertEquals(ErrorCode.FORMAT,IDValidator.quickCheck("11010119900307１09X"));
+        Assert.assertEquals(ErrorCode.LENGTH,IDValidator.quickCheck("11010119900307109"));
+        Assert.assertEquals(ErrorCode.LENGTH,IDValidator.quickCheck(null));
+    }
+
+    @Test
+    public void concurrent() throws Exception{
+        String[] ids={"110101199003071233","370102198511204565","140000000000000000","371202197801010023"};
+        ExecutorService executor=Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures=new ArrayList<>();
+            for(int i=0;i<64;i++){
+                final String id=ids[i%ids.length];
+                final ValidationResult expected=validator.validate(id);
+                futures.add(executor.submit(() -> {
+                    for(int j=0;j<100;j++){
+                        ValidationResult result=validator.validate(id);
+                        if(result.getErrorCode()!=expected.getErrorCode()||result.getCountyCode()!=expected.getCountyCode())
+                            return false;
+                    }
+                    return true;
+                }));
+            }
+            for(Future<Boolean> future:futures)
+                Assert.assertTrue(future.get());
+        }finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void namesOnDemand() throws Exception {
+        //名称在需要时才从地区代码表中查找，与find得到的相同，有缓存时也一样
+        RegionIndex index=RegionIndex.getResources();
+        IDValidator cached=new IDValidator(null,null,new ResultCache(1000));
+        for(String id:new IDGenerator(index).generate(ErrorCode.SUCCESS,2000,9)){
+            ValidationResult result=validator.validate(id);
+            Region region=index.find(result.getCountyCode(),result.getBirthday()/100);
+            for(ValidationResult other:new ValidationResult[]{result,cached.validate(id),cached.validate(id)}){
+                Assert.assertEquals(id,region.getProvince(),other.getProvince());
+                Assert.assertEquals(id,region.getCity(),other.getCity());
+                Assert.assertEquals(id,region.getCounty(),other.getCounty());
+                Assert.assertEquals(id,region.getCityCode(),other.getCityCode());
+                Assert.assertEquals(id,region.getRegionVersion(),other.getRegionVersion());
+            }
+        }
+        Assert.assertNull(validator.validate("00000019900101000X").getProvince());
+    }
+}
@@ -0,0 +1,77 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Random;
+
+public class PackedIDCheckerTest {
+
+    /** 数字附近的字符，用于检查SWAR的边界 */
+    private static final char[] NOISE={'/',':','?','@','X','x',' ','°','¹'};
+
+    @Test
+    public void sameAsChecksum(){
+        Random random=new Random(16);
+        int count=5000;
+        StringBuilder[] ids=new StringBuilder[count];
+        byte[] records=new byte[count*PackedIDChecker.RECORD_LENGTH];
+        for(int i=0;i<count;i++){
+            StringBuilder id=new StringBuilder();
+            for(int j=0;j<17;j++)
+                id.append((char)('0'+random.nextInt(10)));
+            id.append(IDChecksum.checkDigit(id));
+            if(id.charAt(17)=='X'&&random.nextBoolean())
+                id.setCharAt(17,'x');
+            //三分之一正确，三分之一第18位错误，三分之一有一个非数字的字符
+            switch (random.nextInt(3)){
+                case 1:
+                    id.setCharAt(17,"0123456789X".charAt(random.nextInt(11)));
+                    break;
+                case 2:
+                    id.setCharAt(random.nextInt(17),NOISE[random.nextInt(NOISE.length)]);
+                    break;
+                default:
+                    break;
+            }
+            ids[i]=id;
+            System.arraycopy(id.toString().getBytes(StandardCharsets.ISO_8859_1),0,records,i*PackedIDChecker.RECORD_LENGTH,PackedIDChecker.RECORD_LENGTH);
+        }
+
+        BitSet passed=PackedIDChecker.check(records);
+        ByteBuffer buffer=ByteBuffer.wrap(records);
+        for(int i=0;i<count;i++){
+            ErrorCode expected=IDChecksum.check(ids[i]);
+            Assert.assertEquals(ids[i].toString(),expected==ErrorCode.SUCCESS,passed.get(i));
+            Assert.assertEquals(ids[i].toString(),expected,PackedIDChecker.check(buffer,i));
+            Assert.assertEquals(ids[i].toString(),PackedIDChecker.id(records,i));
+        }
+    }
+
+    @Test
+    public void direct(){
+        String ids="110101199003071233"+"140000000000000000"+"11010119900307109X"+"140xxx1475xxxxxxxx";
+        ByteBuffer buffer=ByteBuffer.allocateDirect(ids.length()+3);
+        buffer.put((byte)'#').put(ids.getBytes(StandardCharsets.US_ASCII)).flip();
+        buffer.position(1);
+
+        BitSet passed=PackedIDChecker.check(buffer);
+        Assert.assertEquals(1,buffer.position());
+        Assert.assertTrue(passed.get(0));
+        Assert.assertFalse(passed.get(1));
+        Assert.assertTrue(passed.get(2));
+        Assert.assertFalse(passed.get(3));
+        Assert.assertEquals(ErrorCode.VERIFY,PackedIDChecker.check(buffer,1));
+        Assert.assertEquals(ErrorCode.FORMAT,PackedIDChecker.check(buffer,3));
+        Assert.assertEquals("11010119900307109X",PackedIDChecker.id(buffer,2));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void length(){
+        PackedIDChecker.check(new byte[17]);
+    }
+}
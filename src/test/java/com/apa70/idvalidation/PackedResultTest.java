@@ -0,0 +1,69 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Sex;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PackedResultTest {
+
+    @Test
+    public void success(){
+        ValidationResult result=new IDValidator().validate("370102198511204565");
+        long packed=PackedResult.encode(result);
+        Assert.assertTrue(PackedResult.isSuccess(packed));
+        Assert.assertEquals(ErrorCode.SUCCESS,PackedResult.errorCode(packed));
+        Assert.assertEquals(Sex.WOMAN,PackedResult.sex(packed));
+        Assert.assertEquals(19851120,PackedResult.birthday(packed));
+        Assert.assertEquals(198500,PackedResult.regionVersion(packed));
+        Assert.assertEquals(370102,PackedResult.countyCode(packed));
+        Assert.assertEquals(370100,PackedResult.cityCode(packed));
+        Assert.assertEquals(370000,PackedResult.provinceCode(packed));
+        Assert.assertEquals(packed,PackedResult.encode(ErrorCode.SUCCESS,19851120,Sex.WOMAN,370102,198500));
+    }
+
+    @Test
+    public void layout(){
+        //格式固定，保存下来的数据以后还要能读
+        long packed=PackedResult.encode(ErrorCode.SUCCESS,19900307,Sex.MAN,110101,199000);
+        Assert.assertEquals(0x1AE1504A3917C670L,packed);
+        Assert.assertEquals(4,PackedResult.encode(ErrorCode.REGION,0,null,0,0));
+        Assert.assertEquals(1,PackedResult.encode(ErrorCode.LENGTH,0,null,0,0));
+    }
+
+    @Test
+    public void fail(){
+        IDValidator validator=new IDValidator();
+        String[] ids={"140123","140xxx1475xxxxxxxx","140000000000000000","00000019900101000X"};
+        ErrorCode[] codes={ErrorCode.LENGTH,ErrorCode.FORMAT,ErrorCode.VERIFY,ErrorCode.REGION};
+        for(int i=0;i<ids.length;i++){
+            long packed=PackedResult.encode(validator.validate(ids[i]));
+            Assert.assertFalse(PackedResult.isSuccess(packed));
+            Assert.assertEquals(codes[i],PackedResult.errorCode(packed));
+            Assert.assertNull(PackedResult.sex(packed));
+            Assert.assertEquals(0,PackedResult.birthday(packed));
+            Assert.assertEquals(0,PackedResult.regionVersion(packed));
+            Assert.assertEquals(0,PackedResult.countyCode(packed));
+        }
+    }
+
+    @Test
+    public void range(){
+        long packed=PackedResult.encode(ErrorCode.SUCCESS,38471231,Sex.MAN,999999,1228574);
+        Assert.assertEquals(38471231,PackedResult.birthday(packed));
+        Assert.assertEquals(999999,PackedResult.countyCode(packed));
+        Assert.assertEquals(1228574,PackedResult.regionVersion(packed));
+        Assert.assertEquals(Sex.MAN,PackedResult.sex(packed));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void birthdayOutOfRange(){
+        PackedResult.encode(ErrorCode.SUCCESS,17991231,Sex.MAN,110101,199000);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void versionOutOfRange(){
+        PackedResult.encode(ErrorCode.SUCCESS,19900307,Sex.MAN,110101,0);
+    }
+}
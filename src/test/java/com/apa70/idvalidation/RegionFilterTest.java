@@ -0,0 +1,73 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+public class RegionFilterTest {
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void sameAsFind() throws IOException {
+        RegionIndex index=RegionIndex.getResources();
+        RegionTable table=index.getTable();
+        int[] versions=index.getQuery().getVersions();
+        int count=0;
+        for(int position=0;position<table.size();position++){
+            int code=table.code(position);
+            boolean found=false;
+            for(int i=0;i<versions.length&&!found;i++)
+                found=index.find(code,versions[i])!=null;
+            Assert.assertEquals(String.valueOf(code),found,index.mayContain(code));
+            if(found)
+                count++;
+        }
+        Assert.assertEquals(count,RegionFilter.of(table).cardinality());
+
+        Assert.assertTrue(index.mayContain(370102));
+        Assert.assertFalse(index.mayContain(0));
+        Assert.assertFalse(index.mayContain(990101));
+        Assert.assertFalse(index.mayContain(-1));
+        Assert.assertFalse(index.mayContain(RegionFilter.CODES));
+    }
+
+    @Test
+    public void beforeBirthday(){
+        //前六位不可能存在时不再解析生日
+        IDValidator validator=new IDValidator();
+        Assert.assertEquals(ErrorCode.REGION,validator.validate("000000199913321230").getErrorCode());
+        Assert.assertEquals(ErrorCode.FORMAT,validator.validate("110101199913321238").getErrorCode());
+    }
+
+    @Test
+    public void refreshAfterCollect() throws IOException {
+        String path=folder.newFolder("data").getPath();
+        File data=new File(path,"administrative-code-data");
+        Assert.assertTrue(data.mkdir());
+        Files.write(new File(data,"code.json").toPath(),"{}".getBytes(StandardCharsets.UTF_8));
+        IDValidator validator=new IDValidator(path);
+        Assert.assertEquals(ErrorCode.REGION,validator.validate("110199200001011238").getErrorCode());
+
+        File html=folder.newFile("202000.html");
+        Files.write(html.toPath(),("<html><body><table>"
+                +"<tr><td>标题</td></tr><tr><td>说明</td></tr><tr><td>行政区划代码</td><td>名称</td></tr>"
+                +"<tr><td>110000</td><td>北京市</td></tr>"
+                +"<tr><td>110100</td><td>市辖区</td></tr>"
+                +"<tr><td>110199</td><td>测试区</td></tr>"
+                +"</table></body></html>").getBytes(StandardCharsets.UTF_8));
+        new Collect().add(html,202000,path);
+
+        //Collect写入后已经加载的目录立即重新加载，位图中有了新的代码
+        Assert.assertTrue(RegionIndex.get(path).mayContain(110199));
+        Assert.assertEquals("测试区",validator.validate("110199200001011238").getCounty());
+    }
+}
@@ -0,0 +1,321 @@
+package com.apa70.idvalidation;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.TypeReference;
+import com.apa70.idvalidation.entity.Region;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+public class RegionIndexTest {
+
+    private static final int[] BIRTHDAYS={197001,198000,198006,198500,199012,199700,200501,201206,201900,202012,203001};
+
+    private static Map<String,Map<String,String>> codeMap;
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @BeforeClass
+    public static void load() throws IOException {
+        try(InputStream inputStream=RegionIndexTest.class.getResourceAsStream("/administrative-code-data/code.json")){
+            String json=new Scanner(inputStream,StandardCharsets.UTF_8.name()).useDelimiter("\\A").next();
+            codeMap=JSON.parseObject(json,new TypeReference<Map<String,Map<String,String>>>(){});
+        }
+    }
+
+    @Test
+    public void sameAsScan() throws IOException {
+        assertSameAsScan(RegionIndex.getResources());
+    }
+
+    @Test
+    public void window() throws IOException {
+        RegionTable full=RegionIndex.getResources().getTable();
+        RegionIndex index=new RegionIndex(full,198506,201012);
+        Assert.assertEquals(full.size(),index.getTable().size());
+        Assert.assertTrue(index.getTable().entries()<full.entries()*3/4);
+        //窗口内每个月的结果都与全部版本相同，窗口两端使用窗口外最近的版本
+        for(String code:codeMap.keySet()){
+            for(int year=1985;year<=2010;year++){
+                for(int month=year==1985?6:1;month<=12;month+=5){
+                    Region expected=scan(code,year*100+month);
+                    Region actual=index.find(code,year*100+month);
+                    if(expected==null){
+                        Assert.assertNull(code,actual);
+                        continue;
+                    }
+                    Assert.assertEquals(code+"@"+year+month,expected.getCounty(),actual.getCounty());
+                    Assert.assertEquals(code+"@"+year+month,expected.getCity(),actual.getCity());
+                    Assert.assertEquals(code+"@"+year+month,expected.getRegionVersion(),actual.getRegionVersion());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void outsideWindow() throws IOException {
+        RegionIndex full=RegionIndex.getResources();
+        RegionIndex index=new RegionIndex(full.getTable(),198506,199012);
+        Assert.assertTrue(index.covers(198506));
+        Assert.assertTrue(index.covers(199012));
+        Assert.assertFalse(index.covers(198505));
+        Assert.assertFalse(index.covers(201506));
+        Assert.assertTrue(full.covers(201506));
+
+        //窗口之外只能使用保留下来的版本，与全部版本的结果不同
+        Region expected=full.find(110101,201506);
+        Region actual=index.find(110101,201506);
+        Assert.assertEquals(201500,expected.getRegionVersion());
+        Assert.assertTrue(actual.getRegionVersion()<=199000);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void reversedWindow() throws IOException {
+        new RegionIndex(RegionIndex.getResources().getTable(),201001,200001);
+    }
+
+    @Test
+    public void lazyProvinces() throws IOException {
+        RegionIndex index=new RegionIndex(new RegionSegments(null));
+        Assert.assertEquals(0,index.loadedProvinces());
+        Assert.assertEquals("历下区",index.find(370102,198511).getCounty());
+        Assert.assertEquals("济南市",index.find(370102,198511).getCity());
+        Assert.assertEquals(1,index.loadedProvinces());
+        Assert.assertNull(index.find(990101,198511));
+        Assert.assertEquals(2,index.loadedProvinces());
+
+        assertSameAsScan(index);
+        Assert.assertEquals(RegionIndex.getResources().getTable().entries(),index.getTable().entries());
+    }
+
+    @Test
+    public void lazySnapshot() throws IOException {
+        //自带的快照只读取一次，每个省从中取出，自定义目录只有json时按省流式读取后合并
+        File path=folder.newFolder("lazy");
+        writeOverlay(path,"懒加载",1000);
+        RegionSegments segments=new RegionSegments(new File(path,"administrative-code-data"));
+        Assert.assertEquals("懒加载",segments.province(11).find(110101,202006).getCounty());
+        Assert.assertEquals("历下区",segments.province(37).find(370102,198511).getCounty());
+        Assert.assertTrue(segments.hasSnapshots());
+        Assert.assertEquals(2,segments.loaded());
+        Assert.assertEquals("懒加载",segments.whole().find(110101,202006).getCounty());
+    }
+
+    @Test
+    public void compactFile() throws IOException {
+        File data=new File(folder.getRoot(),"administrative-code-data");
+        Assert.assertTrue(data.mkdir());
+        File json=new File(data,"code.json");
+        Files.write(json.toPath(),CodeFile.compact(codeMap).toJSONString().getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(json.length()<JSON.toJSONString(codeMap).getBytes(StandardCharsets.UTF_8).length/2);
+
+        RegionTable table=RegionIndex.loadTable(data,-1);
+        Assert.assertEquals(RegionIndex.getResources().getTable().entries(),table.entries());
+        assertSameAsScan(new RegionIndex(table));
+        Assert.assertEquals(RegionIndex.getResources().getTable().province(37).entries(),RegionIndex.loadTable(data,37).entries());
+    }
+
+    @Test
+    public void direct() throws IOException {
+        RegionTable table=RegionIndex.getResources().getTable().toDirect();
+        Assert.assertTrue(table.isDirect());
+        RegionTable heap=RegionIndex.getResources().getTable();
+        Assert.assertEquals(heap.size(),table.size());
+        Assert.assertEquals(heap.entries(),table.entries());
+        for(int position=0;position<heap.size();position++){
+            Assert.assertEquals(heap.code(position),table.code(position));
+            for(int entry=heap.from(position);entry<heap.to(position);entry++){
+                Assert.assertEquals(heap.version(entry),table.version(entry));
+                Assert.assertEquals(heap.name(entry),table.name(entry));
+            }
+        }
+    }
+
+    @Test
+    public void overlay() throws IOException {
+        File path=folder.newFolder("custom");
+        File data=new File(path,"administrative-code-data");
+        Assert.assertTrue(data.mkdir());
+        Files.write(new File(data,"code.json").toPath(),
+                "{\"110101\":{\"202000\":\"新东城区\"},\"110199\":{\"202000\":\"测试区\"}}".getBytes(StandardCharsets.UTF_8));
+
+        RegionIndex index=RegionIndex.get(path.getPath());
+        Assert.assertSame(index,RegionIndex.get(path.getPath()));
+        Assert.assertEquals("新东城区",index.find(110101,202006).getCounty());
+        Assert.assertEquals("东城区",index.find(110101,201906).getCounty());
+        Assert.assertEquals("测试区",index.find(110199,202006).getCounty());
+        Assert.assertEquals(index.find(110102,202006).getCounty(),RegionIndex.getResources().find(110102,202006).getCounty());
+    }
+
+    @Test
+    public void reload() throws IOException {
+        File path=folder.newFolder("reload");
+        File json=writeOverlay(path,"第一版",1000);
+
+        RegionIndex index=RegionIndex.get(path.getPath());
+        Assert.assertEquals("第一版",index.find(110101,202006).getCounty());
+
+        writeOverlay(path,"第二版",2000);
+        //没有重新加载前一直使用原来的索引
+        Assert.assertSame(index,RegionIndex.get(path.getPath()));
+
+        RegionIndex reloaded=RegionIndex.reload(path.getPath());
+        Assert.assertSame(reloaded,RegionIndex.get(path.getPath()));
+        Assert.assertEquals("第二版",reloaded.find(110101,202006).getCounty());
+        //原来的索引不受影响
+        Assert.assertEquals("第一版",index.find(110101,202006).getCounty());
+        Assert.assertTrue(json.exists());
+    }
+
+    @Test
+    public void watch() throws Exception {
+        File path=folder.newFolder("watch");
+        writeOverlay(path,"第一版",1000);
+        RegionIndex index=RegionIndex.get(path.getPath());
+
+        ValidationMetrics metrics=new ValidationMetrics();
+        RegionIndex.addLoadListener(metrics);
+        RegionIndex.watch(path.getPath(),20,TimeUnit.MILLISECONDS);
+        try {
+            //写了一半的文件不会替换原来的索引
+            File json=new File(path,"administrative-code-data/code.json");
+            Files.write(json.toPath(),"{\"110101\":{\"2020".getBytes(StandardCharsets.UTF_8));
+            Assert.assertTrue(json.setLastModified(2000));
+            Thread.sleep(200);
+            Assert.assertSame(index,RegionIndex.get(path.getPath()));
+            Assert.assertEquals(1,metrics.getIndexLoadFailures());
+
+            writeOverlay(path,"第二版",3000);
+            long deadline=System.currentTimeMillis()+5000;
+            while(RegionIndex.get(path.getPath())==index&&System.currentTimeMillis()<deadline)
+                Thread.sleep(20);
+            Assert.assertEquals("第二版",RegionIndex.get(path.getPath()).find(110101,202006).getCounty());
+        }finally {
+            RegionIndex.unwatch(path.getPath());
+            RegionIndex.removeLoadListener(metrics);
+        }
+    }
+
+    @Test
+    public void throwingLoadListener() throws IOException {
+        File path=folder.newFolder("listener");
+        writeOverlay(path,"第一版",1000);
+        RegionSource source=new RegionSource(path.getPath(),new File(path,"administrative-code-data"));
+        RegionIndex index=source.get();
+
+        ValidationMetrics metrics=new ValidationMetrics();
+        ValidationListener throwing=new ValidationListener() {
+            @Override
+            public void onIndexLoad(String path, long nanos, boolean reload) {
+                throw new IllegalStateException("监听失败");
+            }
+        };
+        RegionIndex.addLoadListener(throwing);
+        RegionIndex.addLoadListener(metrics);
+        try {
+            writeOverlay(path,"第二版",2000);
+            source.poll();
+            source.poll();
+            //新的索引已经替换，监听的异常不算加载失败，其他监听照常收到通知
+            Assert.assertNotSame(index,source.get());
+            Assert.assertEquals("第二版",source.get().find(110101,202006).getCounty());
+            Assert.assertEquals(0,metrics.getIndexLoadFailures());
+            Assert.assertEquals(1,metrics.getIndexLoad(true).getCount());
+        }finally {
+            RegionIndex.removeLoadListener(throwing);
+            RegionIndex.removeLoadListener(metrics);
+        }
+    }
+
+    private static File writeOverlay(File path,String county,long lastModified) throws IOException {
+        File data=new File(path,"administrative-code-data");
+        if(!data.isDirectory())
+            Assert.assertTrue(data.mkdir());
+        File json=new File(data,"code.json");
+        Files.write(json.toPath(),("{\"110101\":{\"202000\":\""+county+"\"}}").getBytes(StandardCharsets.UTF_8));
+        Assert.assertTrue(json.setLastModified(lastModified));
+        return json;
+    }
+
+    private void assertSameAsScan(RegionIndex index){
+        for(String code:codeMap.keySet()){
+            for(int birthday:BIRTHDAYS){
+                Region expected=scan(code,birthday);
+                Region actual=index.find(code,birthday);
+                String message=code+"@"+birthday;
+                if(expected==null){
+                    Assert.assertNull(message,actual);
+                    continue;
+                }
+                Assert.assertNotNull(message,actual);
+                Assert.assertEquals(message,expected.getProvince(),actual.getProvince());
+                Assert.assertEquals(message,expected.getCity(),actual.getCity());
+                Assert.assertEquals(message,expected.getCounty(),actual.getCounty());
+                Assert.assertEquals(message,expected.getCountyCode(),actual.getCountyCode());
+                Assert.assertEquals(message,expected.getRegionVersion(),actual.getRegionVersion());
+            }
+        }
+    }
+
+    /**
+     * 原来逐个版本比较的查找方式
+     */
+    private static Region scan(String id6,int birthday){
+        Map<String,String> codeDateMap=codeMap.get(id6);
+        if(codeDateMap==null)
+            return null;
+        int positiveDifference=0,negativeDifference=0;
+        String positiveKey="",negativeKey="";
+        for(String k:codeDateMap.keySet()){
+            int difference=birthday-Integer.parseInt(k);
+            if(difference==0){
+                positiveKey=k;
+                break;
+            }else if(difference>0){
+                if(difference<positiveDifference||positiveDifference==0){
+                    positiveDifference=difference;
+                    positiveKey=k;
+                }
+            }else{
+                if(difference>negativeDifference||negativeDifference==0){
+                    negativeDifference=difference;
+                    negativeKey=k;
+                }
+            }
+        }
+        String dateKey=(!positiveKey.equals(""))?positiveKey:negativeKey;
+        if(dateKey.equals(""))
+            return null;
+
+        String provinceCode=id6.substring(0,2)+"0000";
+        Map<String,String> provinceDateMap=codeMap.get(provinceCode);
+        if(provinceDateMap==null||!provinceDateMap.containsKey(dateKey))
+            return null;
+        String province=provinceDateMap.get(dateKey);
+
+        String cityCode=id6.substring(0,4)+"00";
+        String city;
+        Map<String,String> cityDateMap=codeMap.get(cityCode);
+        if(cityDateMap==null){
+            city=province.endsWith("市")?province:"省直辖县";
+        }else{
+            if(!cityDateMap.containsKey(dateKey))
+                return null;
+            city=cityDateMap.get(dateKey);
+        }
+        return new Region(province,city,codeDateMap.get(dateKey),Integer.parseInt(provinceCode),Integer.parseInt(cityCode),
+                Integer.parseInt(id6),Integer.parseInt(dateKey));
+    }
+}
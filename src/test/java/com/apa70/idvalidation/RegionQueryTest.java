@@ -0,0 +1,140 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.Region;
+import com.apa70.idvalidation.entity.RegionDiff;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+public class RegionQueryTest {
+
+    private static RegionQuery query;
+
+    @BeforeClass
+    public static void load() throws IOException {
+        query=RegionIndex.getResources().getQuery();
+    }
+
+    @Test
+    public void version(){
+        int[] versions=query.getVersions();
+        Assert.assertEquals(198000,versions[0]);
+        Assert.assertEquals(202000,versions[versions.length-1]);
+        Assert.assertEquals(201800,query.version(201801));
+        Assert.assertEquals(201800,query.version(201800));
+        Assert.assertEquals(198000,query.version(197001));
+        Assert.assertEquals(202000,query.version(203012));
+    }
+
+    @Test
+    public void find(){
+        Region region=query.find(370102,198511);
+        Assert.assertEquals("山东省",region.getProvince());
+        Assert.assertEquals("济南市",region.getCity());
+        Assert.assertEquals("历下区",region.getCounty());
+        Assert.assertEquals(198500,region.getRegionVersion());
+        //这个版本中没有时不使用其他版本
+        Assert.assertNull(query.find(371202,198511));
+        Assert.assertNull(query.find(999999,198511));
+    }
+
+    @Test
+    public void prefix(){
+        List<Region> all=query.prefix("37",202001);
+        Assert.assertEquals(155,all.size());
+        Assert.assertEquals(370000,all.get(0).getCountyCode());
+        List<Region> counties=query.counties("37",202001);
+        Assert.assertEquals(138,counties.size());
+        int last=0;
+        for(Region region:counties){
+            Assert.assertEquals(37,region.getCountyCode()/10000);
+            Assert.assertNotEquals(0,region.getCountyCode()%100);
+            Assert.assertTrue(region.getCountyCode()>last);
+            Assert.assertEquals(202000,region.getRegionVersion());
+            last=region.getCountyCode();
+        }
+
+        Assert.assertEquals(1,query.prefix("370102",198511).size());
+        Assert.assertTrue(query.prefix("3712",201901).isEmpty());
+        Assert.assertFalse(query.prefix("3712",201701).isEmpty());
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void invalidPrefix(){
+        query.prefix("3a",202000);
+    }
+
+    @Test
+    public void byName(){
+        List<Region> laiwu=query.byName("莱芜市",201701);
+        Assert.assertEquals(1,laiwu.size());
+        Assert.assertEquals(371200,laiwu.get(0).getCountyCode());
+        Assert.assertEquals("山东省",laiwu.get(0).getProvince());
+        Assert.assertTrue(query.byName("莱芜市",201901).isEmpty());
+        Assert.assertTrue(query.byName("不存在的地方",201901).isEmpty());
+
+        //所有使用过这个名称的代码，每个代码一次
+        List<Region> history=query.byName("莱芜市");
+        Assert.assertTrue(history.size()>1);
+        for(int i=1;i<history.size();i++)
+            Assert.assertTrue(history.get(i).getCountyCode()>history.get(i-1).getCountyCode());
+        for(Region region:history)
+            Assert.assertEquals("莱芜市",region.getCounty());
+    }
+
+    @Test
+    public void suggest(){
+        List<Region> regions=query.suggest("莱芜",201701,10);
+        Assert.assertFalse(regions.isEmpty());
+        for(Region region:regions){
+            Assert.assertTrue(region.getCounty().startsWith("莱芜"));
+            Assert.assertEquals(201700,region.getRegionVersion());
+        }
+        Assert.assertEquals(3,query.suggest("东",202000,3).size());
+        //2019年莱芜市撤销后为济南市莱芜区
+        regions=query.suggest("莱芜",202000,10);
+        Assert.assertEquals(1,regions.size());
+        Assert.assertEquals("莱芜区",regions.get(0).getCounty());
+        Assert.assertEquals("济南市",regions.get(0).getCity());
+    }
+
+    @Test
+    public void diff() throws IOException {
+        RegionDiff diff=query.diff(201800,201900);
+        Assert.assertEquals(201800,diff.getFromVersion());
+        Assert.assertEquals(201900,diff.getToVersion());
+        Assert.assertEquals(32,diff.getRemoved().size());
+        Assert.assertEquals(27,diff.getAdded().size());
+        Assert.assertEquals(140726,diff.getRemoved().get(0).getCountyCode());
+        Assert.assertEquals(201800,diff.getRemoved().get(0).getRegionVersion());
+        Assert.assertEquals(140703,diff.getAdded().get(0).getCountyCode());
+        Assert.assertEquals(201900,diff.getAdded().get(0).getRegionVersion());
+
+        //与逐个版本比较的结果相同
+        RegionTable table=RegionIndex.getResources().getTable();
+        diff=query.diff(198000,202000);
+        int added=0,removed=0,renamed=0;
+        for(int position=0;position<table.size();position++){
+            int from=table.exact(position,198000),to=table.exact(position,202000);
+            if(from<0&&to>=0)
+                added++;
+            else if(from>=0&&to<0)
+                removed++;
+            else if(from>=0&&!table.name(from).equals(table.name(to)))
+                renamed++;
+        }
+        Assert.assertEquals(added,diff.getAdded().size());
+        Assert.assertEquals(removed,diff.getRemoved().size());
+        Assert.assertEquals(renamed,diff.getRenamed().size());
+        Assert.assertTrue(renamed>0);
+    }
+
+    @Test
+    public void sameQuery() throws IOException {
+        Assert.assertSame(query,RegionIndex.getResources().getQuery());
+        Assert.assertSame(query,RegionQuery.get(null));
+    }
+}
@@ -0,0 +1,118 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.exception.IndexFileException;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+
+public class RegionSnapshotTest {
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void writeAndMap() throws IOException {
+        RegionTable table=RegionIndex.getResources().getTable();
+        File file=folder.newFile(RegionSnapshot.FILE_NAME);
+        RegionSnapshot.write(table,file);
+
+        RegionTable mapped=RegionSnapshot.map(file);
+        Assert.assertTrue(mapped.isDirect());
+        Assert.assertEquals(table.size(),mapped.size());
+        Assert.assertEquals(table.entries(),mapped.entries());
+        for(int position=0;position<table.size();position++){
+            Assert.assertEquals(table.code(position),mapped.code(position));
+            Assert.assertEquals(table.from(position),mapped.from(position));
+            for(int entry=table.from(position);entry<table.to(position);entry++){
+                Assert.assertEquals(table.version(entry),mapped.version(entry));
+                Assert.assertEquals(table.name(entry),mapped.name(entry));
+                Assert.assertEquals(table.provinceIndex(entry),mapped.provinceIndex(entry));
+                Assert.assertEquals(table.cityIndex(entry),mapped.cityIndex(entry));
+            }
+        }
+    }
+
+    @Test
+    public void readProvince() throws IOException {
+        RegionTable table=RegionIndex.getResources().getTable();
+        File file=folder.newFile(RegionSnapshot.FILE_NAME);
+        RegionSnapshot.write(table,file);
+        ByteBuffer snapshot=RegionSnapshot.open(file);
+
+        for(int province:new int[]{11,37,65,99}){
+            RegionTable expected=table.province(province);
+            RegionTable actual=RegionSnapshot.read(snapshot,province);
+            Assert.assertFalse(actual.isDirect());
+            //名称池只有这个省用到的名称
+            Assert.assertTrue(actual.namePool().length<table.namePool().length);
+            Assert.assertEquals(expected.size(),actual.size());
+            Assert.assertEquals(expected.entries(),actual.entries());
+            for(int position=0;position<expected.size();position++){
+                Assert.assertEquals(expected.code(position),actual.code(position));
+                Assert.assertEquals(expected.from(position),actual.from(position));
+                for(int entry=expected.from(position);entry<expected.to(position);entry++){
+                    Assert.assertEquals(expected.version(entry),actual.version(entry));
+                    Assert.assertEquals(expected.name(entry),actual.name(entry));
+                    Assert.assertEquals(name(expected,expected.provinceIndex(entry)),name(actual,actual.provinceIndex(entry)));
+                    Assert.assertEquals(name(expected,expected.cityIndex(entry)),name(actual,actual.cityIndex(entry)));
+                }
+            }
+        }
+    }
+
+    private static String name(RegionTable table,int nameIndex){
+        return nameIndex<0?null:table.namePool()[nameIndex];
+    }
+
+    @Test(expected=IndexFileException.class)
+    public void corrupted() throws IOException {
+        File file=folder.newFile(RegionSnapshot.FILE_NAME);
+        RegionSnapshot.write(RegionIndex.getResources().getTable(),file);
+        try(RandomAccessFile randomAccessFile=new RandomAccessFile(file,"rw")){
+            randomAccessFile.seek(100);
+            randomAccessFile.write(randomAccessFile.read()^0xFF);
+        }
+        RegionSnapshot.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+    }
+
+    @Test
+    public void staleSnapshot() throws IOException {
+        File data=folder.newFolder("administrative-code-data");
+        File json=new File(data,"code.json");
+        Files.write(json.toPath(),"{\"110000\":{\"202000\":\"北京市\"},\"110101\":{\"202000\":\"旧名称\"}}".getBytes("UTF-8"));
+        new Collect().snapshot(folder.getRoot().getPath());
+        File snapshot=new File(data,RegionSnapshot.FILE_NAME);
+        Assert.assertTrue(RegionSnapshot.isSnapshotOf(snapshot,json));
+
+        //同样长度的新内容，修改时间与快照相同，仍然不能使用旧的快照
+        Files.write(json.toPath(),"{\"110000\":{\"202000\":\"北京市\"},\"110101\":{\"202000\":\"新名称\"}}".getBytes("UTF-8"));
+        Assert.assertTrue(json.setLastModified(snapshot.lastModified()));
+        Assert.assertFalse(RegionSnapshot.isSnapshotOf(snapshot,json));
+        Assert.assertNull(RegionIndex.loadSnapshot(data));
+        RegionTable table=RegionIndex.loadTable(data,-1);
+        Assert.assertEquals("新名称",table.name(table.nearest(table.find(110101),202006)));
+    }
+
+    @Test
+    public void collectSnapshot() throws IOException {
+        File data=folder.newFolder("administrative-code-data");
+        Files.write(new File(data,"code.json").toPath(),
+                "{\"110000\":{\"202000\":\"北京市\"},\"110101\":{\"202000\":\"东城区\",\"201900\":\"东城区\"}}".getBytes("UTF-8"));
+        new Collect().snapshot(folder.getRoot().getPath());
+
+        RegionTable table=RegionSnapshot.map(new File(data,RegionSnapshot.FILE_NAME));
+        Assert.assertEquals(2,table.size());
+        Assert.assertEquals(3,table.entries());
+        Assert.assertEquals(2,table.namePool().length);
+        int position=table.find(110101);
+        Assert.assertEquals(201900,table.version(table.nearest(position,201912)));
+        Assert.assertEquals("东城区",table.name(table.nearest(position,202012)));
+    }
+}
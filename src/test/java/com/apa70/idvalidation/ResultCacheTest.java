@@ -0,0 +1,111 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.CachePolicy;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+public class ResultCacheTest {
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void hit(){
+        ResultCache cache=new ResultCache(100);
+        IDValidator validator=new IDValidator(null,null,cache);
+        IDValidator uncached=new IDValidator();
+
+        for(int i=0;i<3;i++){
+            for(String id:new String[]{"370102198511204565","371202197801010023","00000019900101000X","140000000000000000","140123"}){
+                ValidationResult expected=uncached.validate(id);
+                ValidationResult actual=validator.validate(id);
+                Assert.assertEquals(expected.toString(),actual.toString());
+            }
+        }
+        //长度、格式与第18位不正确的号码不缓存
+        Assert.assertEquals(3,cache.size());
+        Assert.assertEquals(6,cache.getHitCount());
+        Assert.assertEquals(3,cache.getMissCount());
+
+        //小写的x与大写的X为同一个号码，结果中的号码为这一次传入的
+        validator.validate("11010119900307125X");
+        ValidationResult result=validator.validate("11010119900307125x");
+        Assert.assertTrue(result.isSuccess());
+        Assert.assertEquals("11010119900307125x",result.getId());
+        Assert.assertEquals(7,cache.getHitCount());
+
+        cache.invalidateAll();
+        Assert.assertEquals(0,cache.size());
+    }
+
+    @Test
+    public void lru(){
+        ResultCache cache=new ResultCache(1);
+        IDValidator validator=new IDValidator(null,null,cache);
+        validator.validate("370102198511204565");
+        validator.validate("371202197801010023");
+        Assert.assertEquals(1,cache.size());
+        Assert.assertEquals(1,cache.getEvictionCount());
+        validator.validate("371202197801010023");
+        Assert.assertEquals(1,cache.getHitCount());
+    }
+
+    @Test
+    public void tinyLfu(){
+        ResultCache cache=new ResultCache(1,CachePolicy.TINY_LFU,0,TimeUnit.SECONDS);
+        IDValidator validator=new IDValidator(null,null,cache);
+        for(int i=0;i<5;i++)
+            validator.validate("370102198511204565");
+        Assert.assertEquals(4,cache.getHitCount());
+
+        //只出现一次的号码不会挤掉常用的号码
+        validator.validate("371202197801010023");
+        Assert.assertEquals(0,cache.getEvictionCount());
+        validator.validate("370102198511204565");
+        Assert.assertEquals(5,cache.getHitCount());
+    }
+
+    @Test
+    public void expire() throws InterruptedException {
+        ResultCache cache=new ResultCache(10,CachePolicy.LRU,20,TimeUnit.MILLISECONDS);
+        IDValidator validator=new IDValidator(null,null,cache);
+        validator.validate("370102198511204565");
+        Thread.sleep(50);
+        validator.validate("370102198511204565");
+        Assert.assertEquals(0,cache.getHitCount());
+        Assert.assertEquals(2,cache.getMissCount());
+    }
+
+    @Test
+    public void reload() throws IOException {
+        File path=folder.newFolder();
+        File data=new File(path,"administrative-code-data");
+        Assert.assertTrue(data.mkdir());
+        File json=new File(data,"code.json");
+        Files.write(json.toPath(),"{\"110101\":{\"202000\":\"第一版\"}}".getBytes(StandardCharsets.UTF_8));
+
+        ResultCache cache=new ResultCache(10);
+        IDValidator validator=new IDValidator(path.getPath(),null,cache);
+        Assert.assertEquals("第一版",validator.validate("110101202006011230").getCounty());
+        Assert.assertEquals("第一版",validator.validate("110101202006011230").getCounty());
+        Assert.assertEquals(1,cache.getHitCount());
+
+        //重新加载后原来的缓存失效
+        Files.write(json.toPath(),"{\"110101\":{\"202000\":\"第二版\"}}".getBytes(StandardCharsets.UTF_8));
+        RegionIndex.reload(path.getPath());
+        ValidationResult result=validator.validate("110101202006011230");
+        Assert.assertEquals(ErrorCode.SUCCESS,result.getErrorCode());
+        Assert.assertEquals("第二版",result.getCounty());
+        Assert.assertEquals(1,cache.getHitCount());
+    }
+}
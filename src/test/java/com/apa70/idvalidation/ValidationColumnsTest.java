@@ -0,0 +1,58 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.entity.ValidationResult;
+import com.apa70.idvalidation.enums.ErrorCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class ValidationColumnsTest {
+
+    @Test
+    public void sameAsResults() throws IOException {
+        Map<ErrorCode,Integer> mix=new EnumMap<>(ErrorCode.class);
+        for(ErrorCode errorCode:ErrorCode.values())
+            mix.put(errorCode,errorCode==ErrorCode.SUCCESS?6:1);
+        String[] ids=new IDGenerator(RegionIndex.getResources()).generate(mix,20000,3);
+
+        IDValidator validator=new IDValidator();
+        ForkJoinPool pool=new ForkJoinPool(4);
+        try {
+            ValidationColumns columns=new BatchValidator(validator,pool,500).validateColumns(ids);
+            Assert.assertEquals(ids.length,columns.size());
+            for(int i=0;i<ids.length;i++){
+                ValidationResult result=validator.validate(ids[i]);
+                Assert.assertEquals(ids[i],columns.id(i));
+                Assert.assertEquals(ids[i],PackedResult.encode(result),columns.getPacked()[i]);
+                Assert.assertEquals(ids[i],result.getErrorCode(),columns.errorCode(i));
+                Assert.assertEquals(ids[i],result.getProvince(),columns.province(i));
+                Assert.assertEquals(ids[i],result.getCity(),columns.city(i));
+                Assert.assertEquals(ids[i],result.getCounty(),columns.county(i));
+                Assert.assertEquals(ids[i],result.getRegionVersion(),columns.regionVersion(i));
+            }
+        }finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void dictionary(){
+        String[] ids={"370102198511204565","371202197801010023","140123","00000019900101000X"};
+        ValidationColumns columns=new BatchValidator(new IDValidator()).validateColumns(ids);
+        Assert.assertNull(columns.getLineNumbers());
+        Assert.assertEquals("济南市",columns.getNames()[columns.getCities()[0]]);
+        Assert.assertEquals("历下区",columns.getNames()[columns.getCounties()[0]]);
+        Assert.assertEquals(199200,columns.regionVersion(1));
+        Assert.assertEquals(-1,columns.getProvinces()[2]);
+        Assert.assertEquals(-1,columns.getCounties()[3]);
+        Assert.assertEquals(2,columns.count(ErrorCode.SUCCESS));
+        Assert.assertEquals(1,columns.count(ErrorCode.REGION));
+
+        //同一份数据的所有批次共用名称字典
+        Assert.assertSame(columns.getNames(),new BatchValidator(new IDValidator()).validateColumns(new String[0]).getNames());
+    }
+}
@@ -0,0 +1,95 @@
+package com.apa70.idvalidation;
+
+import com.apa70.idvalidation.enums.ErrorCode;
+import com.apa70.idvalidation.enums.Stage;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+public class ValidationMetricsTest {
+
+    @Rule
+    public TemporaryFolder folder=new TemporaryFolder();
+
+    @Test
+    public void counts(){
+        ValidationMetrics metrics=new ValidationMetrics();
+        IDValidator validator=new IDValidator(null,metrics);
+
+        Assert.assertTrue(validator.validate("370102198511204565").isSuccess());
+        Assert.assertTrue(validator.validate("371202197801010023").isSuccess());
+        validator.validate("140123");
+        validator.validate("140xxx1475xxxxxxxx");
+        validator.validate("110101199913321238");
+        validator.validate("140000000000000000");
+        validator.validate("00000019900101000X");
+
+        Assert.assertEquals(7,metrics.getTotal());
+        Assert.assertEquals(2,metrics.getCount(ErrorCode.SUCCESS));
+        Assert.assertEquals(1,metrics.getCount(ErrorCode.LENGTH));
+        Assert.assertEquals(2,metrics.getCount(ErrorCode.FORMAT));
+        Assert.assertEquals(1,metrics.getCount(ErrorCode.VERIFY));
+        Assert.assertEquals(1,metrics.getCount(ErrorCode.REGION));
+
+        //每个阶段只统计走到了这一步的号码，前六位不可能存在的号码在位图中排除，不解析生日；
+        //位图检查计入REGION，所以生日不正确的号码也有一次REGION
+        Assert.assertEquals(7,metrics.getLatency(Stage.CHECKSUM).getCount());
+        Assert.assertEquals(3,metrics.getLatency(Stage.DATE).getCount());
+        Assert.assertEquals(4,metrics.getLatency(Stage.REGION).getCount());
+
+        //1985年使用当年的版本，1978年使用之后最近的1992年版本
+        Assert.assertEquals(1,metrics.getSameYearVersions());
+        Assert.assertEquals(0,metrics.getEarlierVersions());
+        Assert.assertEquals(1,metrics.getLaterVersions());
+        Assert.assertEquals(Long.valueOf(1),metrics.getRegionVersions().get(198500));
+        Assert.assertEquals(Long.valueOf(1),metrics.getRegionVersions().get(199200));
+
+        metrics.reset();
+        Assert.assertEquals(0,metrics.getTotal());
+        Assert.assertEquals(0,metrics.getLatency(Stage.CHECKSUM).getCount());
+        Assert.assertTrue(metrics.getRegionVersions().isEmpty());
+    }
+
+    @Test
+    public void histogram(){
+        ValidationMetrics.Histogram histogram=new ValidationMetrics().getLatency(Stage.REGION);
+        Assert.assertEquals(0,histogram.getPercentile(0.5));
+        for(int i=0;i<99;i++)
+            histogram.record(100);
+        histogram.record(1_000_000);
+
+        Assert.assertEquals(100,histogram.getCount());
+        Assert.assertEquals((99*100+1_000_000)/100.0,histogram.getMean(),0.001);
+        //100在[64,128)中
+        Assert.assertEquals(127,histogram.getPercentile(0.5));
+        Assert.assertEquals(127,histogram.getPercentile(0.99));
+        Assert.assertEquals((1<<20)-1,histogram.getPercentile(1));
+    }
+
+    @Test
+    public void indexLoad() throws IOException {
+        ValidationMetrics metrics=new ValidationMetrics();
+        RegionIndex.addLoadListener(metrics);
+        try {
+            String path=new File(folder.getRoot(),"custom").getPath();
+            RegionIndex.get(path);
+            RegionIndex.reload(path);
+            RegionIndex.reload(path);
+        }finally {
+            RegionIndex.removeLoadListener(metrics);
+        }
+        Assert.assertEquals(1,metrics.getIndexLoad(false).getCount());
+        Assert.assertEquals(2,metrics.getIndexLoad(true).getCount());
+    }
+
+    @Test
+    public void disabled(){
+        IDValidator validator=new IDValidator();
+        Assert.assertNull(validator.getListener());
+        Assert.assertTrue(validator.validate("370102198511204565").isSuccess());
+    }
+}